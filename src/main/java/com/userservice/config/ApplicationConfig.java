@@ -1,21 +1,28 @@
 package com.userservice.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
+@EnableScheduling
 @ConfigurationProperties(prefix = "app")
 public class ApplicationConfig {
     
     private String name = "user-management-service";
     private String version = "1.0.0";
     private String description = "User Management and Authentication Microservice";
+    private Audit audit = new Audit();
     
     @Bean(name = "taskExecutor")
     public Executor taskExecutor() {
@@ -28,6 +35,22 @@ public class ApplicationConfig {
         return executor;
     }
     
+    @Bean(name = "passwordHashExecutor")
+    public ThreadPoolTaskExecutor passwordHashExecutor(
+            @Value("${password.hash.threads:0}") int threads,
+            @Value("${password.hash.queue-capacity:64}") int queueCapacity) {
+        // BCrypt is pure CPU work, so one thread per core; the bounded queue is the admission limit
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("PasswordHash-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+    
     // Getters and Setters
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
@@ -37,4 +60,45 @@ public class ApplicationConfig {
     
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
+    
+    public Audit getAudit() { return audit; }
+    public void setAudit(Audit audit) { this.audit = audit; }
+    
+    public static class Audit {
+        
+        // Keyed by action, e.g. app.audit.policies.[TOKEN_REFRESHED].mode; unlisted actions are written in full
+        private Map<String, AuditActionPolicy> policies = new HashMap<>();
+        
+        public Map<String, AuditActionPolicy> getPolicies() { return policies; }
+        public void setPolicies(Map<String, AuditActionPolicy> policies) { this.policies = policies; }
+    }
+    
+    /**
+     * How events of one action are recorded. FAILED events are always written
+     * in full whatever the mode.
+     */
+    public static class AuditActionPolicy {
+        
+        public enum Mode {
+            FULL,       // one audit_logs row per event
+            SAMPLED,    // one row per sampleRate events on average
+            COUNTER     // no rows, only the per-minute counts
+        }
+        
+        private Mode mode = Mode.FULL;
+        private int sampleRate = 1;
+        
+        public AuditActionPolicy() {}
+        
+        public AuditActionPolicy(Mode mode, int sampleRate) {
+            this.mode = mode;
+            this.sampleRate = sampleRate;
+        }
+        
+        public Mode getMode() { return mode; }
+        public void setMode(Mode mode) { this.mode = mode; }
+        
+        public int getSampleRate() { return sampleRate; }
+        public void setSampleRate(int sampleRate) { this.sampleRate = sampleRate; }
+    }
 }
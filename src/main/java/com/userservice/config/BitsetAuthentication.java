@@ -0,0 +1,87 @@
+package com.userservice.config;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Authentication built from a verified access token. Permissions are the
+ * token's bitset over the permission catalog, so a permission check is a
+ * single bit test; role authorities are only materialized if asked for.
+ */
+public class BitsetAuthentication implements Authentication {
+
+    private final String username;
+    private final Long userId;
+    private final List<String> roles;
+    private final BitSet permissions;
+    private final String token;
+    private volatile List<GrantedAuthority> authorities;
+    private boolean authenticated = true;
+
+    public BitsetAuthentication(String username, Long userId, List<String> roles, BitSet permissions, String token) {
+        this.username = username;
+        this.userId = userId;
+        this.roles = roles;
+        this.permissions = permissions;
+        this.token = token;
+    }
+
+    public boolean hasPermission(int permissionIndex) {
+        return permissionIndex >= 0 && permissions.get(permissionIndex);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public BitSet getPermissions() {
+        return permissions;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        List<GrantedAuthority> current = authorities;
+        if (current == null) {
+            current = roles.stream()
+                    .<GrantedAuthority>map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                    .toList();
+            authorities = current;
+        }
+        return current;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return token;
+    }
+
+    @Override
+    public Object getDetails() {
+        return null;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return username;
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return authenticated;
+    }
+
+    @Override
+    public void setAuthenticated(boolean isAuthenticated) throws IllegalArgumentException {
+        this.authenticated = isAuthenticated;
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
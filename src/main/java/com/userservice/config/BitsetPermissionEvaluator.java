@@ -0,0 +1,39 @@
+package com.userservice.config;
+
+import com.userservice.service.PermissionCatalog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.PermissionEvaluator;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+
+/**
+ * Backs {@code hasPermission(...)} expressions with the token's permission
+ * bitset. {@code hasPermission('USER', 'READ')} resolves the resource/action
+ * pair to its catalog index and tests one bit; {@code hasPermission(null,
+ * 'READ_USER')} looks the permission up by name.
+ */
+@Component
+public class BitsetPermissionEvaluator implements PermissionEvaluator {
+
+    @Autowired
+    private PermissionCatalog permissionCatalog;
+
+    @Override
+    public boolean hasPermission(Authentication authentication, Object targetDomainObject, Object permission) {
+        if (!(authentication instanceof BitsetAuthentication) || !(permission instanceof String)) {
+            return false;
+        }
+        int index = targetDomainObject instanceof String
+                ? permissionCatalog.indexOf((String) targetDomainObject, (String) permission)
+                : permissionCatalog.indexOfName((String) permission);
+        return ((BitsetAuthentication) authentication).hasPermission(index);
+    }
+
+    @Override
+    public boolean hasPermission(Authentication authentication, Serializable targetId,
+                                 String targetType, Object permission) {
+        return hasPermission(authentication, targetType, permission);
+    }
+}
@@ -13,6 +13,11 @@ public class JwtConfig {
     private String issuer = "user-management-service";
     private String header = "Authorization";
     private String prefix = "Bearer ";
+    private String algorithm = "HS256"; // HS256, RS256 or EdDSA (asymmetric needs keyStoreLocation)
+    private Long keyRotationInterval = 86400000L; // 24 hours in milliseconds
+    private String keyStoreLocation;
+    private String keyStorePassword;
+    private Long jwksMaxAge = 300L; // seconds
     
     // Constructors
     public JwtConfig() {}
@@ -65,4 +70,44 @@ public class JwtConfig {
     public void setPrefix(String prefix) {
         this.prefix = prefix;
     }
-}
\ No newline at end of file
+    
+    public String getAlgorithm() {
+        return algorithm;
+    }
+    
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+    
+    public Long getKeyRotationInterval() {
+        return keyRotationInterval;
+    }
+    
+    public void setKeyRotationInterval(Long keyRotationInterval) {
+        this.keyRotationInterval = keyRotationInterval;
+    }
+    
+    public String getKeyStoreLocation() {
+        return keyStoreLocation;
+    }
+    
+    public void setKeyStoreLocation(String keyStoreLocation) {
+        this.keyStoreLocation = keyStoreLocation;
+    }
+    
+    public String getKeyStorePassword() {
+        return keyStorePassword;
+    }
+    
+    public void setKeyStorePassword(String keyStorePassword) {
+        this.keyStorePassword = keyStorePassword;
+    }
+    
+    public Long getJwksMaxAge() {
+        return jwksMaxAge;
+    }
+    
+    public void setJwksMaxAge(Long jwksMaxAge) {
+        this.jwksMaxAge = jwksMaxAge;
+    }
+}
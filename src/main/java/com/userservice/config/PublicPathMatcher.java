@@ -0,0 +1,82 @@
+package com.userservice.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Matches requests against the public URL patterns, compiled once at startup.
+ * Exact paths and trailing {@code /**} patterns become plain string
+ * comparisons, so the common case does not allocate; any other pattern is
+ * parsed into a {@link PathPattern}. Paths are matched within the
+ * application, i.e. without the servlet context path.
+ */
+public class PublicPathMatcher implements RequestMatcher {
+
+    private final String[] exactPaths;
+    private final String[] prefixes;
+    private final PathPattern[] patterns;
+
+    public PublicPathMatcher(String... publicUrls) {
+        List<String> exact = new ArrayList<>();
+        List<String> prefix = new ArrayList<>();
+        List<PathPattern> other = new ArrayList<>();
+        for (String url : publicUrls) {
+            if (url.endsWith("/**") && !hasWildcard(url.substring(0, url.length() - 3))) {
+                prefix.add(url.substring(0, url.length() - 3));
+            } else if (!hasWildcard(url)) {
+                exact.add(url);
+            } else {
+                other.add(PathPatternParser.defaultInstance.parse(url));
+            }
+        }
+        this.exactPaths = exact.toArray(new String[0]);
+        this.prefixes = prefix.toArray(new String[0]);
+        this.patterns = other.toArray(new PathPattern[0]);
+    }
+
+    @Override
+    public boolean matches(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length();
+        return matches(uri, start);
+    }
+
+    public boolean matches(String path) {
+        return matches(path, 0);
+    }
+
+    private boolean matches(String uri, int start) {
+        int length = uri.length() - start;
+        for (String exactPath : exactPaths) {
+            if (length == exactPath.length() && uri.startsWith(exactPath, start)) {
+                return true;
+            }
+        }
+        for (String prefix : prefixes) {
+            // "/auth/**" covers "/auth" itself and anything below "/auth/"
+            if (uri.startsWith(prefix, start)
+                    && (length == prefix.length() || uri.charAt(start + prefix.length()) == '/')) {
+                return true;
+            }
+        }
+        if (patterns.length > 0) {
+            PathContainer container = PathContainer.parsePath(uri.substring(start));
+            for (PathPattern pattern : patterns) {
+                if (pattern.matches(container)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasWildcard(String path) {
+        return path.indexOf('*') >= 0 || path.indexOf('?') >= 0 || path.indexOf('{') >= 0;
+    }
+}
@@ -1,7 +1,11 @@
 // Fixed SecurityConfig.java
 package com.userservice.config;
 
+import com.userservice.service.AuthorizationSnapshotService;
+import com.userservice.service.SessionStore;
+import com.userservice.util.BCryptCalibrator;
 import com.userservice.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,10 +16,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
@@ -28,6 +35,7 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 @Configuration
@@ -38,12 +46,22 @@ public class SecurityConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class);
 
+    // Carries a replacement access token when the presented one had a stale permission snapshot
+    public static final String REFRESHED_TOKEN_HEADER = "X-Refreshed-Token";
+
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private AuthorizationSnapshotService authorizationSnapshotService;
+
+    @Autowired
+    private SessionStore sessionStore;
+
     private static final String[] PUBLIC_URLS = {
             "/auth/**",
             "/health/**",
+            "/.well-known/**",
             "/roles/available",
             "/actuator/**",
             "/h2-console/**",
@@ -51,6 +69,9 @@ public class SecurityConfig {
             "/v3/api-docs/**"
     };
 
+    // Compiled once and shared by the filter chain and JwtAuthenticationFilter
+    private static final PublicPathMatcher PUBLIC_PATHS = new PublicPathMatcher(PUBLIC_URLS);
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http.csrf(csrf -> csrf.disable())
@@ -62,7 +83,7 @@ public class SecurityConfig {
                 )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers(PUBLIC_URLS).permitAll()
+                        .requestMatchers(PUBLIC_PATHS).permitAll()
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
@@ -75,9 +96,18 @@ public class SecurityConfig {
         return new JwtAuthenticationFilter();
     }
 
+    // Static so method security can be set up without instantiating this configuration early
+    @Bean
+    static MethodSecurityExpressionHandler methodSecurityExpressionHandler(BitsetPermissionEvaluator permissionEvaluator) {
+        DefaultMethodSecurityExpressionHandler handler = new DefaultMethodSecurityExpressionHandler();
+        handler.setPermissionEvaluator(permissionEvaluator);
+        return handler;
+    }
+
+    // Single encoder shared with PasswordUtil, using the calibrated work factor
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    public PasswordEncoder passwordEncoder(BCryptCalibrator calibrator) {
+        return new BCryptPasswordEncoder(calibrator.getStrength());
     }
 
     @Bean
@@ -87,7 +117,7 @@ public class SecurityConfig {
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
         configuration.setAllowCredentials(true);
-        configuration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type", REFRESHED_TOKEN_HEADER));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
@@ -104,21 +134,57 @@ public class SecurityConfig {
             String authHeader = request.getHeader("Authorization");
             String token = null;
             String username = null;
+            Claims claims = null;
 
-            // Extract token from Authorization header
+            // Extract token from Authorization header and verify it once
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 token = authHeader.substring(7);
                 try {
-                    username = jwtUtil.extractUsername(token);
+                    claims = jwtUtil.verify(token);
+                    username = claims.getSubject();
                 } catch (Exception e) {
                     // Fixed: Pass exception object instead of message string
                     logger.error("JWT token extraction failed", e);
                 }
             }
 
-            if (username != null && jwtUtil.validateToken(token)) {
+            // Refresh tokens are only good for /auth/refresh
+            if (claims != null && !jwtUtil.isAccessToken(claims)) {
+                log.debug("Rejected non-access token for user: {}", username);
+                claims = null;
+                username = null;
+            }
+
+            // Logged-out and revoked tokens keep a valid signature until they expire
+            if (claims != null && !sessionStore.isActive(authorizationSnapshotService.sessionKeyOf(token, claims))) {
+                log.debug("No active session for token of user: {}", username);
+                claims = null;
+                username = null;
+            }
+
+            boolean snapshotCurrent = true;
+            if (claims != null && authorizationSnapshotService.isStale(claims)) {
+                try {
+                    token = authorizationSnapshotService.reissue(token, claims);
+                    claims = jwtUtil.verify(token);
+                    response.setHeader(REFRESHED_TOKEN_HEADER, token);
+                } catch (Exception e) {
+                    // The stale snapshot cannot be trusted, so authenticate without roles or permissions
+                    logger.error("Re-issuing token with a stale permission snapshot failed", e);
+                    snapshotCurrent = false;
+                }
+            }
+
+            if (username != null) {
+                List<String> roles = snapshotCurrent ? authorizationSnapshotService.rolesOf(claims) : List.of();
+                BitSet permissions = snapshotCurrent ? authorizationSnapshotService.permissionsOf(claims) : new BitSet();
                 request.setAttribute("username", username);
                 request.setAttribute("token", token);
+                BitsetAuthentication authentication = new BitsetAuthentication(username,
+                        authorizationSnapshotService.userIdOf(claims), roles, permissions, token);
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+                request.setAttribute("roles", roles);
+                request.setAttribute("permissions", authentication.getPermissions());
                 log.info("JWT token validated for user: {}",username);
             } else if (token != null) {
                 String maskedToken = token.length() > 10 ? token.substring(0, 10) + "..." : token;
@@ -130,9 +196,7 @@ public class SecurityConfig {
 
         @Override
         protected boolean shouldNotFilter(HttpServletRequest request) {
-            String path = request.getRequestURI();
-            return Arrays.stream(PUBLIC_URLS)
-                    .anyMatch(publicUrl -> path.matches(publicUrl.replace("/**", "/.*")));
+            return PUBLIC_PATHS.matches(request);
         }
     }
 }
\ No newline at end of file
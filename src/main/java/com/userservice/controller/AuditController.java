@@ -0,0 +1,194 @@
+// AuditController.java
+package com.userservice.controller;
+
+import com.userservice.config.ApplicationConfig.AuditActionPolicy;
+import com.userservice.dto.ApiResponse;
+import com.userservice.dto.AuditLogResponse;
+import com.userservice.dto.AuditSearchCriteria;
+import com.userservice.dto.AuditSearchResponse;
+import com.userservice.entity.AuditLog;
+import com.userservice.service.AuditExportService;
+import com.userservice.service.AuditPolicyService;
+import com.userservice.service.AuditService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/audit")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class AuditController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditController.class);
+
+    @Autowired
+    private AuditService auditService;
+
+    @Autowired
+    private AuditExportService auditExportService;
+
+    @Autowired
+    private AuditPolicyService auditPolicyService;
+
+    @Value("${audit.active-users.exact-max-minutes:1440}")
+    private int exactMaxMinutes;
+
+    @GetMapping("/search")
+    @PreAuthorize("hasPermission('AUDIT', 'READ')")
+    public ResponseEntity<ApiResponse<AuditSearchResponse>> searchAuditLogs(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) AuditLog.ActionStatus status,
+            @RequestParam(required = false) String ipAddress,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+
+        logger.debug("Audit search: userId={}, action={}, status={}, ip={}", userId, action, status, ipAddress);
+
+        AuditSearchCriteria criteria = new AuditSearchCriteria(userId, action, status, ipAddress, from, to);
+        AuditSearchResponse result = auditService.searchAuditLogs(criteria, cursor, limit);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @GetMapping("/recent")
+    @PreAuthorize("hasPermission('AUDIT', 'READ')")
+    public ResponseEntity<ApiResponse<List<AuditLogResponse>>> getRecentAuditLogs(
+            @RequestParam String action,
+            @RequestParam(defaultValue = "20") int limit) {
+
+        List<AuditLogResponse> logs = auditService.getRecentAuditLogs(action, limit).stream()
+                .map(AuditLogResponse::from)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(ApiResponse.success(logs));
+    }
+
+    @GetMapping("/security-events")
+    @PreAuthorize("hasPermission('AUDIT', 'READ')")
+    public ResponseEntity<ApiResponse<List<AuditLogResponse>>> getSecurityEvents(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since) {
+
+        List<AuditLogResponse> events = auditService.getSecurityEvents(since).stream()
+                .map(AuditLogResponse::from)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(ApiResponse.success(events));
+    }
+
+    // In-memory view for dashboards; covers this instance only and may include events not yet written
+    @GetMapping("/security-events/recent")
+    @PreAuthorize("hasPermission('AUDIT', 'READ')")
+    public ResponseEntity<ApiResponse<List<AuditLogResponse>>> getRecentSecurityEvents(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(defaultValue = "100") int limit) {
+
+        return ResponseEntity.ok(ApiResponse.success(auditService.getRecentSecurityEvents(since, limit)));
+    }
+
+    // DAU/WAU/MAU and "active in the last N minutes" from sketches; exact=true counts the window itself
+    // exactly, which scans audit_logs and is therefore limited to audit.active-users.exact-max-minutes
+    @GetMapping("/active-users")
+    @PreAuthorize("hasPermission('AUDIT', 'READ')")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getActiveUsers(
+            @RequestParam(defaultValue = "15") int minutes,
+            @RequestParam(defaultValue = "false") boolean exact) {
+
+        if (minutes < 1) {
+            throw new IllegalArgumentException("minutes must be at least 1");
+        }
+        if (exact && minutes > exactMaxMinutes) {
+            throw new IllegalArgumentException("Exact counts are limited to " + exactMaxMinutes + " minutes");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("mode", exact ? "exact" : "approximate");
+        counts.put("windowMinutes", minutes);
+        counts.put("activeInWindow", exact
+                ? auditService.getExactActiveUsersCount(now.minusMinutes(minutes))
+                : auditService.getActiveUsersCount(now.minusMinutes(minutes)));
+        counts.put("dau", auditService.getActiveUsersCount(now.minusDays(1)));
+        counts.put("wau", auditService.getActiveUsersCount(now.minusDays(7)));
+        counts.put("mau", auditService.getActiveUsersCount(now.minusDays(30)));
+        counts.put("relativeStandardError", auditService.getActiveUsersRelativeError());
+        return ResponseEntity.ok(ApiResponse.success(counts));
+    }
+
+    @GetMapping("/policies")
+    @PreAuthorize("hasPermission('AUDIT', 'READ')")
+    public ResponseEntity<ApiResponse<Map<String, AuditActionPolicy>>> getPolicies() {
+        return ResponseEntity.ok(ApiResponse.success(auditPolicyService.getPolicies()));
+    }
+
+    // Replaces the per-action policies on this instance until restart or reset
+    @PutMapping("/policies")
+    @PreAuthorize("hasPermission('AUDIT', 'MANAGE')")
+    public ResponseEntity<ApiResponse<Map<String, AuditActionPolicy>>> updatePolicies(
+            @RequestBody Map<String, AuditActionPolicy> policies) {
+
+        logger.info("Audit policies replaced: {}", policies.keySet());
+        return ResponseEntity.ok(ApiResponse.success("Audit policies updated", auditPolicyService.update(policies)));
+    }
+
+    @DeleteMapping("/policies")
+    @PreAuthorize("hasPermission('AUDIT', 'MANAGE')")
+    public ResponseEntity<ApiResponse<Map<String, AuditActionPolicy>>> resetPolicies() {
+        logger.info("Audit policies reset to configuration");
+        return ResponseEntity.ok(ApiResponse.success("Audit policies reset", auditPolicyService.reset()));
+    }
+
+    // Streams matching rows; gzip is used when the client accepts it unless gzip=false
+    @GetMapping("/export")
+    @PreAuthorize("hasPermission('AUDIT', 'EXPORT')")
+    public ResponseEntity<StreamingResponseBody> exportAuditLogs(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) AuditLog.ActionStatus status,
+            @RequestParam(required = false) Boolean gzip,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        // Resolved before streaming starts, so an unknown format is still a 400
+        AuditExportService.Format exportFormat = AuditExportService.Format.parse(format);
+        boolean compress = gzip != null ? gzip : acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        logger.info("Audit export requested: format={}, from={}, to={}, userId={}, action={}, status={}",
+                exportFormat, from, to, userId, action, status);
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = compress ? new GZIPOutputStream(outputStream, 8192) : outputStream;
+            long rows = auditExportService.export(from, to, userId, action, status, exportFormat, out);
+            if (compress) {
+                ((GZIPOutputStream) out).finish();
+            }
+            logger.info("Audit export finished: {} rows", rows);
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"audit-export." + exportFormat.getExtension() + "\"");
+        if (compress) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+}
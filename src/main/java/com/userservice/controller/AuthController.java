@@ -15,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.security.auth.login.AccountLockedException;
+import java.util.List;
 
 @RestController
 @RequestMapping("/auth")
@@ -121,6 +122,19 @@ public class AuthController {
         return ResponseEntity.ok(response);
     }
     
+    @PostMapping("/introspect")
+    public ResponseEntity<ApiResponse<List<TokenIntrospectionResponse>>> introspectTokens(
+            @Valid @RequestBody TokenIntrospectionRequest request) {
+        
+        logger.debug("Batch introspection of {} tokens", request.getTokens().size());
+        
+        List<TokenIntrospectionResponse> results = authService.introspectTokens(request.getTokens());
+        ApiResponse<List<TokenIntrospectionResponse>> response = ApiResponse.success(
+                "Token introspection results", results);
+        
+        return ResponseEntity.ok(response);
+    }
+    
     @GetMapping("/me")
     public ResponseEntity<ApiResponse<UserResponse>> getCurrentUser(HttpServletRequest httpRequest) {
         String token = requestUtil.getAuthTokenFromRequest(httpRequest);
@@ -71,13 +71,20 @@ public class HealthController {
         endpoints.put("POST /auth/login", "User login");
         endpoints.put("POST /auth/logout", "User logout");
         endpoints.put("POST /auth/refresh", "Refresh JWT token");
+        endpoints.put("POST /auth/introspect", "Batch token introspection");
         endpoints.put("GET /auth/me", "Get current user info");
         endpoints.put("GET /users/{id}", "Get user by ID");
         endpoints.put("PUT /users/{id}/profile", "Update user profile");
         endpoints.put("GET /users/search", "Search users");
         endpoints.put("GET /roles", "Get all roles");
+        endpoints.put("GET /audit/search", "Search audit logs (cursor paginated)");
+        endpoints.put("GET /audit/security-events", "Recent security events");
+        endpoints.put("GET /audit/active-users", "Active user counts (DAU/WAU/MAU)");
+        endpoints.put("GET /audit/export", "Stream audit logs as NDJSON or CSV");
+        endpoints.put("GET|PUT|DELETE /audit/policies", "View, replace or reset per-action audit policies");
         endpoints.put("POST /roles", "Create new role");
         endpoints.put("GET /health", "Health check");
+        endpoints.put("GET /.well-known/jwks.json", "JWT signing keys (JWKS)");
         
         info.put("availableEndpoints", endpoints);
         
@@ -0,0 +1,38 @@
+// JwksController.java
+package com.userservice.controller;
+
+import com.userservice.config.JwtConfig;
+import com.userservice.util.JwtKeyRing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/.well-known")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class JwksController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(JwksController.class);
+    
+    @Autowired
+    private JwtKeyRing keyRing;
+    
+    @Autowired
+    private JwtConfig jwtConfig;
+    
+    // Plain JWK Set document (RFC 7517) so standard JWT libraries can consume it directly
+    @GetMapping("/jwks.json")
+    public ResponseEntity<Map<String, Object>> getJwks() {
+        logger.debug("JWKS requested");
+        
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(jwtConfig.getJwksMaxAge(), TimeUnit.SECONDS).cachePublic())
+                .body(keyRing.getJwks());
+    }
+}
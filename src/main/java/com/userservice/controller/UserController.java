@@ -99,6 +99,7 @@ public class UserController {
         return ResponseEntity.ok(response);
     }
     
+    // sortBy=relevance ranks exact matches first, then prefix, then substring matches
     @GetMapping("/search")
     public ResponseEntity<ApiResponse<Page<UserResponse>>> searchUsers(
             @RequestParam String keyword,
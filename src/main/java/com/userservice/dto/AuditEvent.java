@@ -0,0 +1,56 @@
+package com.userservice.dto;
+
+import com.userservice.entity.AuditLog;
+import com.userservice.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An audit record waiting to be written. Detached from JPA so it can be
+ * queued, batched and spilled to disk; string fields are cut to the
+ * audit_logs column sizes up front so one oversized value cannot fail a batch.
+ * The event id is assigned once, so a spooled event that is replayed after it
+ * was already written can be recognised and skipped.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditEvent {
+
+    private String eventId;
+    private Long userId;
+    private String action;
+    private String resource;
+    private LocalDateTime timestamp;
+    private String ipAddress;
+    private String userAgent;
+    private String details;
+    private AuditLog.ActionStatus status;
+
+    public static AuditEvent of(User user, String action, String resource, String ipAddress,
+                                String userAgent, AuditLog.ActionStatus status, String details) {
+        return new AuditEvent(
+                newEventId(),
+                user != null ? user.getId() : null,
+                truncate(action, 100),
+                truncate(resource, 100),
+                LocalDateTime.now(),
+                truncate(ipAddress, 45),
+                truncate(userAgent, 500),
+                truncate(details, 1000),
+                status
+        );
+    }
+
+    public static String newEventId() {
+        return UUID.randomUUID().toString();
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+}
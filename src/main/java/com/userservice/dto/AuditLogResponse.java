@@ -0,0 +1,55 @@
+package com.userservice.dto;
+
+import com.userservice.entity.AuditLog;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data                   // generates getters, setters, toString, equals, hashCode
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AuditLogResponse {
+
+    private Long id;
+    private Long userId;
+    private String action;
+    private String resource;
+    private LocalDateTime timestamp;
+    private String ipAddress;
+    private String userAgent;
+    private String details;
+    private String status;
+
+    public static AuditLogResponse from(AuditLog log) {
+        return new AuditLogResponse(
+                log.getId(),
+                log.getUser() != null ? log.getUser().getId() : null,
+                log.getAction(),
+                log.getResource(),
+                log.getTimestamp(),
+                log.getIpAddress(),
+                log.getUserAgent(),
+                log.getDetails(),
+                log.getStatus().toString()
+        );
+    }
+
+    // Events not yet written have no id
+    public static AuditLogResponse from(AuditEvent event) {
+        return new AuditLogResponse(
+                null,
+                event.getUserId(),
+                event.getAction(),
+                event.getResource(),
+                event.getTimestamp(),
+                event.getIpAddress(),
+                event.getUserAgent(),
+                event.getDetails(),
+                event.getStatus().toString()
+        );
+    }
+}
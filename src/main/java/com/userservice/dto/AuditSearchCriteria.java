@@ -0,0 +1,24 @@
+package com.userservice.dto;
+
+import com.userservice.entity.AuditLog;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data                   // generates getters, setters, toString, equals, hashCode
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AuditSearchCriteria {
+
+    // Every filter is optional; null means "any"
+    private Long userId;
+    private String action;
+    private AuditLog.ActionStatus status;
+    private String ipAddress;
+    private LocalDateTime from;     // inclusive
+    private LocalDateTime to;       // exclusive
+}
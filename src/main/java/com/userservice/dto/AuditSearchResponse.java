@@ -0,0 +1,16 @@
+package com.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditSearchResponse {
+
+    private List<AuditLogResponse> items;
+    private String nextCursor;      // null on the last page
+}
@@ -0,0 +1,19 @@
+package com.userservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenIntrospectionRequest {
+
+    @NotEmpty(message = "At least one token is required")
+    @Size(max = 1000, message = "At most 1000 tokens can be introspected per request")
+    private List<String> tokens;
+}
@@ -0,0 +1,22 @@
+package com.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data                   // generates getters, setters, toString, equals, hashCode
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TokenIntrospectionResponse {
+
+    private int index;          // position of the token in the request
+    private boolean active;     // signature and expiry valid and session not revoked
+    private String subject;
+    private LocalDateTime expiresAt;
+    private Boolean revoked;    // null when the token has no session
+    private String error;
+}
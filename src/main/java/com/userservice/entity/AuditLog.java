@@ -8,29 +8,46 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "audit_logs")
-@EntityListeners(AuditingEntityListener.class)
+@Table(name = "audit_logs", indexes = {
+        @Index(name = "idx_audit_logs_timestamp", columnList = "timestamp"),
+        // One per search filter shape, ending in the keyset columns
+        @Index(name = "idx_audit_logs_user_ts", columnList = "user_id, timestamp, id"),
+        @Index(name = "idx_audit_logs_action_ts", columnList = "action_id, timestamp, id"),
+        @Index(name = "idx_audit_logs_status_ts", columnList = "status, timestamp, id"),
+        @Index(name = "idx_audit_logs_ip_ts", columnList = "ip_address, timestamp, id"),
+        // Lets spool replay skip events that were already written
+        @Index(name = "idx_audit_logs_event_id", columnList = "event_id, timestamp")
+})
+@EntityListeners({AuditingEntityListener.class, UserAgentListener.class})
 @Data   // generates getters, setters, equals, hashCode, toString
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class AuditLog {
+public class AuditLog implements UserAgentColumns {
 
     @Id
+    // Kept at 1: AuditWriter takes ids from audit_sequence.NEXTVAL inside its batch insert
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_seq")
     @SequenceGenerator(name = "audit_seq", sequenceName = "audit_sequence", allocationSize = 1)
     private Long id;
 
+    // Assigned by the producer (AuditEvent); null for rows written before event ids existed
+    @Column(name = "event_id", length = 36, updatable = false)
+    private String eventId;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
     private User user;
 
-    @Column(nullable = false, length = 100)
+    // Low-cardinality strings are stored as string_dictionary ids and decoded on read
+    @Convert(converter = DictionaryStringConverter.class)
+    @Column(name = "action_id", nullable = false)
     private String action;
 
-    @Column(nullable = false, length = 100)
+    @Convert(converter = DictionaryStringConverter.class)
+    @Column(name = "resource_id", nullable = false)
     private String resource;
 
     @CreatedDate
@@ -40,7 +57,14 @@ public class AuditLog {
     @Column(name = "ip_address", length = 45)
     private String ipAddress;
 
+    // Common agents are string_dictionary ids, the rest text; see UserAgentListener
+    @Column(name = "user_agent_id")
+    private Integer userAgentId;
+
     @Column(name = "user_agent", length = 500)
+    private String userAgentText;
+
+    @Transient
     private String userAgent;
 
     @Column(length = 1000)
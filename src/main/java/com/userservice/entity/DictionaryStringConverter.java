@@ -0,0 +1,27 @@
+package com.userservice.entity;
+
+import com.userservice.service.StringDictionary;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Stores a string attribute as its {@link StringDictionary} id. Hibernate
+ * obtains converters from Spring, so the dictionary is injected.
+ */
+@Converter
+public class DictionaryStringConverter implements AttributeConverter<String, Integer> {
+
+    @Autowired
+    private StringDictionary stringDictionary;
+
+    @Override
+    public Integer convertToDatabaseColumn(String value) {
+        return stringDictionary.intern(value);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer id) {
+        return stringDictionary.decode(id);
+    }
+}
@@ -11,7 +11,9 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "permissions")
+@Table(name = "permissions", indexes = {
+        @Index(name = "idx_permissions_bit_index", columnList = "bit_index", unique = true)
+})
 @EntityListeners(AuditingEntityListener.class)
 @Data   // generates getters, setters, equals, hashCode, toString
 @NoArgsConstructor
@@ -21,7 +23,7 @@ public class Permission {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "permission_seq")
-    @SequenceGenerator(name = "permission_seq", sequenceName = "permission_sequence", allocationSize = 1)
+    @SequenceGenerator(name = "permission_seq", sequenceName = "permission_sequence", allocationSize = 10)
     private Long id;
 
     @Column(unique = true, nullable = false, length = 100)
@@ -39,6 +41,10 @@ public class Permission {
     @Column(length = 255)
     private String description;
 
+    // Position in token permission bitsets; assigned once at creation and never reused
+    @Column(name = "bit_index", nullable = false)
+    private Integer bitIndex;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -21,7 +21,7 @@ public class Role {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "role_seq")
-    @SequenceGenerator(name = "role_seq", sequenceName = "role_sequence", allocationSize = 1)
+    @SequenceGenerator(name = "role_seq", sequenceName = "role_sequence", allocationSize = 10)
     private Long id;
 
     @Column(unique = true, nullable = false, length = 50)
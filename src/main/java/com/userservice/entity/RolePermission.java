@@ -18,7 +18,7 @@ public class RolePermission {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "role_permission_seq")
-    @SequenceGenerator(name = "role_permission_seq", sequenceName = "role_permission_sequence", allocationSize = 1)
+    @SequenceGenerator(name = "role_permission_seq", sequenceName = "role_permission_sequence", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
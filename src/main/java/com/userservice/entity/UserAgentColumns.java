@@ -0,0 +1,21 @@
+package com.userservice.entity;
+
+/**
+ * An entity whose user agent {@link UserAgentListener} stores in either the
+ * user_agent_id or the user_agent column. Only {@code userAgent} is meant for
+ * application code; the other two are the stored form.
+ */
+public interface UserAgentColumns {
+
+    String getUserAgent();
+
+    void setUserAgent(String userAgent);
+
+    Integer getUserAgentId();
+
+    void setUserAgentId(Integer userAgentId);
+
+    String getUserAgentText();
+
+    void setUserAgentText(String userAgentText);
+}
@@ -0,0 +1,31 @@
+package com.userservice.entity;
+
+import com.userservice.service.StringDictionary;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Stores a user agent as its {@link StringDictionary} id while the bounded
+ * dictionary admits it, and as plain text once the dictionary is full. The
+ * agent is fixed when the row is created. Hibernate obtains listeners from
+ * Spring, so the dictionary is injected.
+ */
+public class UserAgentListener {
+
+    @Autowired
+    private StringDictionary stringDictionary;
+
+    @PrePersist
+    void encode(UserAgentColumns entity) {
+        Integer id = stringDictionary.internBounded(entity.getUserAgent());
+        entity.setUserAgentId(id);
+        entity.setUserAgentText(id == null ? entity.getUserAgent() : null);
+    }
+
+    @PostLoad
+    void decode(UserAgentColumns entity) {
+        Integer id = entity.getUserAgentId();
+        entity.setUserAgent(id != null ? stringDictionary.decode(id) : entity.getUserAgentText());
+    }
+}
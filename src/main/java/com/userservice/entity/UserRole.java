@@ -18,7 +18,7 @@ public class UserRole {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_role_seq")
-    @SequenceGenerator(name = "user_role_seq", sequenceName = "user_role_sequence", allocationSize = 1)
+    @SequenceGenerator(name = "user_role_seq", sequenceName = "user_role_sequence", allocationSize = 20)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -1,5 +1,6 @@
 package com.userservice.entity;
 
+import com.userservice.util.TokenDigest;
 import jakarta.persistence.*;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -7,21 +8,25 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_sessions")
-@EntityListeners(AuditingEntityListener.class)
-public class UserSession {
+@Table(name = "user_sessions", indexes = {
+        @Index(name = "idx_user_sessions_token_hash", columnList = "token_hash", unique = true),
+        @Index(name = "idx_user_sessions_deactivated_at", columnList = "deactivated_at")
+})
+@EntityListeners({AuditingEntityListener.class, UserAgentListener.class})
+public class UserSession implements UserAgentColumns {
     
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "session_seq")
-    @SequenceGenerator(name = "session_seq", sequenceName = "session_sequence", allocationSize = 1)
+    @SequenceGenerator(name = "session_seq", sequenceName = "session_sequence", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
     
-    @Column(nullable = false, unique = true, length = 500)
-    private String token;
+    // SHA-256 hex digest of the bearer token; the raw token is never stored
+    @Column(name = "token_hash", nullable = false, length = 64)
+    private String tokenHash;
     
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
@@ -33,10 +38,21 @@ public class UserSession {
     @Column(name = "is_active", nullable = false)
     private Boolean isActive = true;
     
+    // Lets other instances pick up logouts from their session stores
+    @Column(name = "deactivated_at")
+    private LocalDateTime deactivatedAt;
+    
     @Column(name = "ip_address", length = 45)
     private String ipAddress;
     
+    // Common agents are string_dictionary ids, the rest text; see UserAgentListener
+    @Column(name = "user_agent_id")
+    private Integer userAgentId;
+    
     @Column(name = "user_agent", length = 500)
+    private String userAgentText;
+    
+    @Transient
     private String userAgent;
     
     // Constructors
@@ -44,7 +60,7 @@ public class UserSession {
     
     public UserSession(User user, String token, LocalDateTime expiresAt, String ipAddress) {
         this.user = user;
-        this.token = token;
+        this.tokenHash = TokenDigest.sha256Hex(token);
         this.expiresAt = expiresAt;
         this.ipAddress = ipAddress;
     }
@@ -56,8 +72,10 @@ public class UserSession {
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
     
-    public String getToken() { return token; }
-    public void setToken(String token) { this.token = token; }
+    public String getTokenHash() { return tokenHash; }
+    public void setTokenHash(String tokenHash) { this.tokenHash = tokenHash; }
+    
+    public void setToken(String token) { this.tokenHash = TokenDigest.sha256Hex(token); }
     
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
@@ -68,9 +86,18 @@ public class UserSession {
     public Boolean getIsActive() { return isActive; }
     public void setIsActive(Boolean isActive) { this.isActive = isActive; }
     
+    public LocalDateTime getDeactivatedAt() { return deactivatedAt; }
+    public void setDeactivatedAt(LocalDateTime deactivatedAt) { this.deactivatedAt = deactivatedAt; }
+    
     public String getIpAddress() { return ipAddress; }
     public void setIpAddress(String ipAddress) { this.ipAddress = ipAddress; }
     
     public String getUserAgent() { return userAgent; }
     public void setUserAgent(String userAgent) { this.userAgent = userAgent; }
+    
+    public Integer getUserAgentId() { return userAgentId; }
+    public void setUserAgentId(Integer userAgentId) { this.userAgentId = userAgentId; }
+    
+    public String getUserAgentText() { return userAgentText; }
+    public void setUserAgentText(String userAgentText) { this.userAgentText = userAgentText; }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.userservice.repository;
+
+import com.userservice.dto.AuditSearchCriteria;
+import com.userservice.entity.AuditLog;
+import com.userservice.util.AuditCursor;
+
+import java.util.List;
+
+public interface AuditLogRepositoryCustom {
+
+    /**
+     * Newest-first page of audit logs matching the criteria, starting after
+     * the cursor (or from the newest row when it is null).
+     */
+    List<AuditLog> searchPage(AuditSearchCriteria criteria, AuditCursor after, int limit);
+}
@@ -0,0 +1,64 @@
+package com.userservice.repository;
+
+import com.userservice.dto.AuditSearchCriteria;
+import com.userservice.entity.AuditLog;
+import com.userservice.util.AuditCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the search query from only the filters that are set, so each filter
+ * shape lines up with one of the composite (column, timestamp, id) indexes on
+ * audit_logs, and seeks past the cursor instead of using an offset.
+ */
+public class AuditLogRepositoryImpl implements AuditLogRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<AuditLog> searchPage(AuditSearchCriteria criteria, AuditCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT a FROM AuditLog a WHERE 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+
+        if (criteria.getUserId() != null) {
+            jpql.append(" AND a.user.id = :userId");
+            params.put("userId", criteria.getUserId());
+        }
+        if (criteria.getAction() != null) {
+            jpql.append(" AND a.action = :action");
+            params.put("action", criteria.getAction());
+        }
+        if (criteria.getStatus() != null) {
+            jpql.append(" AND a.status = :status");
+            params.put("status", criteria.getStatus());
+        }
+        if (criteria.getIpAddress() != null) {
+            jpql.append(" AND a.ipAddress = :ipAddress");
+            params.put("ipAddress", criteria.getIpAddress());
+        }
+        if (criteria.getFrom() != null) {
+            jpql.append(" AND a.timestamp >= :from");
+            params.put("from", criteria.getFrom());
+        }
+        if (criteria.getTo() != null) {
+            jpql.append(" AND a.timestamp < :to");
+            params.put("to", criteria.getTo());
+        }
+        if (after != null) {
+            jpql.append(" AND (a.timestamp < :afterTimestamp OR (a.timestamp = :afterTimestamp AND a.id < :afterId))");
+            params.put("afterTimestamp", after.getTimestamp());
+            params.put("afterId", after.getId());
+        }
+        jpql.append(" ORDER BY a.timestamp DESC, a.id DESC");
+
+        TypedQuery<AuditLog> query = entityManager.createQuery(jpql.toString(), AuditLog.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -2,6 +2,7 @@ package com.userservice.repository;
 
 import com.userservice.entity.Permission;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -27,6 +28,18 @@ public interface PermissionRepository extends JpaRepository<Permission, Long> {
     @Query("SELECT p FROM Permission p WHERE p.resource IN :resources")
     List<Permission> findByResources(@Param("resources") List<String> resources);
     
+    // Bit positions come from their own sequence so a deleted permission's position is never handed out again
+    @Query(value = "SELECT permission_bit_sequence.NEXTVAL FROM dual", nativeQuery = true)
+    int nextBitIndex();
+    
+    @Query(value = "SELECT version FROM permission_catalog_version", nativeQuery = true)
+    int currentCatalogVersion();
+    
+    // Row lock serializes concurrent grants; the new version commits together with the change
+    @Modifying
+    @Query(value = "UPDATE permission_catalog_version SET version = version + 1", nativeQuery = true)
+    int incrementCatalogVersion();
+    
     @Query("SELECT p.resource, COUNT(p) FROM Permission p GROUP BY p.resource")
     List<Object[]> findPermissionCountByResource();
 }
\ No newline at end of file
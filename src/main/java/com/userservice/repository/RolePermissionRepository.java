@@ -17,6 +17,9 @@ public interface RolePermissionRepository extends JpaRepository<RolePermission,
     @Query("SELECT rp FROM RolePermission rp WHERE rp.role.id = :roleId")
     List<RolePermission> findByRoleId(@Param("roleId") Long roleId);
     
+    @Query("SELECT rp.permission.id FROM RolePermission rp WHERE rp.role.id = :roleId")
+    List<Long> findPermissionIdsByRoleId(@Param("roleId") Long roleId);
+    
     @Query("SELECT rp FROM RolePermission rp WHERE rp.permission.id = :permissionId")
     List<RolePermission> findByPermissionId(@Param("permissionId") Long permissionId);
     
@@ -5,12 +5,16 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -45,6 +49,17 @@ public interface UserRepository extends JpaRepository<User, Long> {
            "LOWER(u.email) LIKE LOWER(CONCAT('%', :keyword, '%'))")
     Page<User> searchUsers(@Param("keyword") String keyword, Pageable pageable);
     
+    // Fields for the in-memory search index; streamed so a full build never holds all users at once
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT u.id, u.username, u.email, u.firstName, u.lastName, u.createdAt FROM User u")
+    Stream<Object[]> streamSearchFields();
+    
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    // updated_at is also set on insert, so new users are covered; served by idx_users_updated_at
+    @Query("SELECT u.id, u.username, u.email, u.firstName, u.lastName, u.createdAt FROM User u " +
+           "WHERE u.updatedAt >= :since")
+    Stream<Object[]> streamSearchFieldsChangedSince(@Param("since") LocalDateTime since);
+    
     @Query("SELECT COUNT(u) FROM User u WHERE u.status = :status")
     Long countUsersByStatus(@Param("status") User.UserStatus status);
     
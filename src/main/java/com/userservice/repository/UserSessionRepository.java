@@ -4,18 +4,25 @@ import com.userservice.entity.UserSession;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.QueryHint;
+
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserSessionRepository extends JpaRepository<UserSession, Long> {
     
-    Optional<UserSession> findByToken(String token);
+    Optional<UserSession> findByTokenHash(String tokenHash);
+    
+    List<UserSession> findByTokenHashIn(Collection<String> tokenHashes);
     
     @Query("SELECT s FROM UserSession s WHERE s.user.id = :userId AND s.isActive = true")
     List<UserSession> findActiveSessionsByUserId(@Param("userId") Long userId);
@@ -23,10 +30,20 @@ public interface UserSessionRepository extends JpaRepository<UserSession, Long>
     @Query("SELECT s FROM UserSession s WHERE s.expiresAt < :currentTime")
     List<UserSession> findExpiredSessions(@Param("currentTime") LocalDateTime currentTime);
     
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT s.id, s.tokenHash, s.user.id, s.expiresAt FROM UserSession s " +
+           "WHERE s.isActive = true AND s.expiresAt > :currentTime")
+    Stream<Object[]> streamActiveSessionKeys(@Param("currentTime") LocalDateTime currentTime);
+    
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT s.tokenHash FROM UserSession s WHERE s.deactivatedAt >= :since")
+    Stream<String> streamTokenHashesDeactivatedSince(@Param("since") LocalDateTime since);
+    
     @Modifying
     @Transactional
-    @Query("UPDATE UserSession s SET s.isActive = false WHERE s.user.id = :userId")
-    void deactivateAllUserSessions(@Param("userId") Long userId);
+    @Query("UPDATE UserSession s SET s.isActive = false, s.deactivatedAt = :now " +
+           "WHERE s.user.id = :userId AND s.isActive = true")
+    void deactivateAllUserSessions(@Param("userId") Long userId, @Param("now") LocalDateTime now);
     
     @Modifying
     @Transactional
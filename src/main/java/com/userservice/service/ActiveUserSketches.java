@@ -0,0 +1,292 @@
+// ActiveUserSketches.java
+package com.userservice.service;
+
+import com.userservice.util.HyperLogLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Approximate distinct active users per time bucket. Audit and session events
+ * update an in-memory HyperLogLog for the current minute; each instance
+ * periodically persists its own minute sketches, and compaction merges them
+ * into hour and day sketches. A window is answered by merging at most a few
+ * dozen sketches (whole days, whole hours, then minutes at the edges), so
+ * DAU/WAU/MAU cost the same regardless of traffic. The newest persisted
+ * hour and day sketches mark how far compaction got, so a restarted or
+ * long-stopped instance resumes from there and catches up on the buckets it
+ * missed. See {@link HyperLogLog} for the error bound.
+ */
+@Service
+public class ActiveUserSketches {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveUserSketches.class);
+
+    private enum Level {
+        MINUTE("audit_hll_minute"), HOUR("audit_hll_hour"), DAY("audit_hll_day");
+
+        private final String table;
+
+        Level(String table) {
+            this.table = table;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${audit.active-users.precision:12}")
+    private int precision;
+
+    @Value("${audit.active-users.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${audit.active-users.recompact-hours:3}")
+    private int recompactHours;
+
+    @Value("${audit.active-users.minute-retention-hours:48}")
+    private int minuteRetentionHours;
+
+    @Value("${audit.active-users.hour-retention-days:35}")
+    private int hourRetentionDays;
+
+    @Value("${audit.active-users.day-retention-days:400}")
+    private int dayRetentionDays;
+
+    private String nodeId;
+    private final Map<LocalDateTime, HyperLogLog> openMinutes = new ConcurrentHashMap<>();
+    private final Set<LocalDateTime> dirtyMinutes = ConcurrentHashMap.newKeySet();
+
+    // Hour and day sketches before these instants are complete
+    private volatile LocalDateTime hourWatermark = LocalDateTime.MIN;
+    private volatile LocalDateTime dayWatermark = LocalDateTime.MIN;
+
+    @PostConstruct
+    void init() {
+        this.nodeId = configuredNodeId != null && !configuredNodeId.isBlank()
+                ? configuredNodeId : UUID.randomUUID().toString();
+        // Buckets up to the newest persisted sketch were compacted by earlier runs; later ones wait for compaction
+        LocalDateTime lastHour = lastCompacted(Level.HOUR);
+        LocalDateTime lastDay = lastCompacted(Level.DAY);
+        if (lastHour != null) {
+            this.hourWatermark = lastHour.plusHours(1);
+        }
+        if (lastDay != null) {
+            this.dayWatermark = lastDay.plusDays(1);
+        }
+    }
+
+    public void record(Long userId, LocalDateTime at) {
+        if (userId == null) {
+            return;
+        }
+        LocalDateTime minute = at.truncatedTo(ChronoUnit.MINUTES);
+        HyperLogLog sketch = openMinutes.computeIfAbsent(minute, m -> new HyperLogLog(precision));
+        synchronized (sketch) {
+            sketch.add(userId);
+        }
+        dirtyMinutes.add(minute);
+    }
+
+    /**
+     * Estimated distinct users active between {@code since} and now.
+     */
+    public long estimateActiveUsers(LocalDateTime since) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cursor = since.truncatedTo(ChronoUnit.MINUTES);
+        HyperLogLog result = new HyperLogLog(precision);
+
+        // Walk the window with the coarsest complete bucket available at each step,
+        // merging each run of same-level buckets with one range query
+        Level runLevel = null;
+        LocalDateTime runStart = cursor;
+        while (!cursor.isAfter(now)) {
+            Level level;
+            LocalDateTime next;
+            if (cursor.equals(cursor.truncatedTo(ChronoUnit.DAYS)) && !cursor.plusDays(1).isAfter(dayWatermark)) {
+                level = Level.DAY;
+                next = cursor.plusDays(1);
+            } else if (cursor.equals(cursor.truncatedTo(ChronoUnit.HOURS)) && !cursor.plusHours(1).isAfter(hourWatermark)) {
+                level = Level.HOUR;
+                next = cursor.plusHours(1);
+            } else {
+                level = Level.MINUTE;
+                next = cursor.plusMinutes(1);
+            }
+            if (level != runLevel) {
+                if (runLevel != null) {
+                    mergeRange(runLevel, runStart, cursor, result);
+                }
+                runLevel = level;
+                runStart = cursor;
+            }
+            cursor = next;
+        }
+        if (runLevel != null) {
+            mergeRange(runLevel, runStart, cursor, result);
+        }
+        return result.estimate();
+    }
+
+    public double getRelativeStandardError() {
+        return HyperLogLog.relativeStandardError(precision);
+    }
+
+    @Scheduled(fixedDelayString = "${audit.active-users.flush-interval:10000}")
+    public void flush() {
+        for (LocalDateTime minute : new ArrayList<>(dirtyMinutes)) {
+            dirtyMinutes.remove(minute);
+            HyperLogLog sketch = openMinutes.get(minute);
+            if (sketch == null) {
+                continue;
+            }
+            HyperLogLog snapshot;
+            synchronized (sketch) {
+                snapshot = sketch.copy();
+            }
+            try {
+                // Merge with what this node already stored, in case the minute was evicted and reopened
+                HyperLogLog stored = loadMinute(minute);
+                if (stored != null) {
+                    snapshot.merge(stored);
+                }
+                upsert(Level.MINUTE, minute, snapshot.toBytes());
+            } catch (Exception e) {
+                dirtyMinutes.add(minute);
+                logger.error("Could not persist active-user sketch for {}", minute, e);
+                break;
+            }
+        }
+        LocalDateTime cutoff = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).minusMinutes(2);
+        openMinutes.keySet().removeIf(minute -> minute.isBefore(cutoff) && !dirtyMinutes.contains(minute));
+    }
+
+    @Scheduled(fixedDelayString = "${audit.active-users.compact-interval:300000}",
+               initialDelayString = "${audit.active-users.compact-initial-delay:60000}")
+    public void compact() {
+        try {
+            LocalDateTime currentHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+            // Resume from the newest sketch, redoing at least the recent buckets for late events;
+            // buckets older than what the finer level still retains cannot be rebuilt
+            LocalDateTime hourFrom = resumeFrom(lastCompacted(Level.HOUR), currentHour.minusHours(recompactHours),
+                    currentHour.minusHours(minuteRetentionHours));
+            for (LocalDateTime hour = hourFrom; hour.isBefore(currentHour); hour = hour.plusHours(1)) {
+                HyperLogLog sketch = new HyperLogLog(precision);
+                mergeRange(Level.MINUTE, hour, hour.plusHours(1), sketch);
+                if (!sketch.isEmpty()) {
+                    upsert(Level.HOUR, hour, sketch.toBytes());
+                }
+            }
+            hourWatermark = currentHour;
+
+            LocalDateTime today = currentHour.truncatedTo(ChronoUnit.DAYS);
+            LocalDateTime dayFrom = resumeFrom(lastCompacted(Level.DAY), today.minusDays(1),
+                    today.minusDays(hourRetentionDays));
+            for (LocalDateTime dayStart = dayFrom; dayStart.isBefore(today); dayStart = dayStart.plusDays(1)) {
+                HyperLogLog day = new HyperLogLog(precision);
+                mergeRange(Level.HOUR, dayStart, dayStart.plusDays(1), day);
+                if (!day.isEmpty()) {
+                    upsert(Level.DAY, dayStart, day.toBytes());
+                }
+            }
+            dayWatermark = today;
+
+            jdbcTemplate.update("DELETE FROM audit_hll_minute WHERE bucket_start < ?",
+                    Timestamp.valueOf(currentHour.minusHours(minuteRetentionHours)));
+            jdbcTemplate.update("DELETE FROM audit_hll_hour WHERE bucket_start < ?",
+                    Timestamp.valueOf(today.minusDays(hourRetentionDays)));
+            jdbcTemplate.update("DELETE FROM audit_hll_day WHERE bucket_start < ?",
+                    Timestamp.valueOf(today.minusDays(dayRetentionDays)));
+        } catch (Exception e) {
+            logger.error("Active-user sketch compaction failed", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    private LocalDateTime lastCompacted(Level level) {
+        Timestamp last = jdbcTemplate.queryForObject("SELECT MAX(bucket_start) FROM " + level.table, Timestamp.class);
+        return last != null ? last.toLocalDateTime() : null;
+    }
+
+    private static LocalDateTime resumeFrom(LocalDateTime last, LocalDateTime recent, LocalDateTime oldest) {
+        if (last == null || last.isBefore(oldest)) {
+            return oldest;
+        }
+        return last.isBefore(recent) ? last : recent;
+    }
+
+    private void mergeRange(Level level, LocalDateTime from, LocalDateTime to, HyperLogLog into) {
+        jdbcTemplate.query("SELECT registers FROM " + level.table + " WHERE bucket_start >= ? AND bucket_start < ?",
+                rs -> {
+                    into.merge(HyperLogLog.fromBytes(rs.getBytes(1)));
+                },
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+        if (level == Level.MINUTE) {
+            // This node's newest events may not be flushed yet
+            openMinutes.forEach((minute, sketch) -> {
+                if (!minute.isBefore(from) && minute.isBefore(to)) {
+                    synchronized (sketch) {
+                        into.merge(sketch);
+                    }
+                }
+            });
+        }
+    }
+
+    private HyperLogLog loadMinute(LocalDateTime minute) {
+        List<byte[]> rows = jdbcTemplate.query(
+                "SELECT registers FROM audit_hll_minute WHERE bucket_start = ? AND node_id = ?",
+                (rs, rowNum) -> rs.getBytes(1),
+                Timestamp.valueOf(minute), nodeId);
+        return rows.isEmpty() ? null : HyperLogLog.fromBytes(rows.get(0));
+    }
+
+    private void upsert(Level level, LocalDateTime bucket, byte[] registers) {
+        boolean perNode = level == Level.MINUTE;
+        String keyFilter = perNode ? " WHERE bucket_start = ? AND node_id = ?" : " WHERE bucket_start = ?";
+        Object[] key = perNode
+                ? new Object[]{Timestamp.valueOf(bucket), nodeId}
+                : new Object[]{Timestamp.valueOf(bucket)};
+
+        Object[] updateArgs = new Object[key.length + 1];
+        updateArgs[0] = registers;
+        System.arraycopy(key, 0, updateArgs, 1, key.length);
+        String update = "UPDATE " + level.table + " SET registers = ?" + keyFilter;
+        if (jdbcTemplate.update(update, updateArgs) > 0) {
+            return;
+        }
+        try {
+            if (perNode) {
+                jdbcTemplate.update("INSERT INTO audit_hll_minute (bucket_start, node_id, registers) VALUES (?, ?, ?)",
+                        Timestamp.valueOf(bucket), nodeId, registers);
+            } else {
+                jdbcTemplate.update("INSERT INTO " + level.table + " (bucket_start, registers) VALUES (?, ?)",
+                        Timestamp.valueOf(bucket), registers);
+            }
+        } catch (DuplicateKeyException e) {
+            // Another instance compacted the same bucket first; both computed it from the same minutes
+            jdbcTemplate.update(update, updateArgs);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+// AuditExportService.java
+package com.userservice.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.userservice.entity.AuditLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams audit rows straight from a forward-only JDBC cursor to an output
+ * stream as NDJSON or CSV. Rows are written as they are fetched and never
+ * collected, so memory use depends on the fetch size, not the export size.
+ */
+@Service
+public class AuditExportService {
+
+    private static final String SELECT_SQL =
+            "SELECT id, user_id, action_id, resource_id, timestamp, ip_address, user_agent_id, details, status, user_agent " +
+            "FROM audit_logs";
+
+    private static final String[] COLUMNS = {
+            "id", "userId", "action", "resource", "timestamp", "ipAddress", "userAgent", "details", "status"
+    };
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        // Case-insensitive; an unknown name is a client error
+        public static Format parse(String name) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown export format: " + name + " (use ndjson or csv)");
+        }
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StringDictionary stringDictionary;
+
+    @Value("${audit.export.fetch-size:1000}")
+    private int fetchSize;
+
+    // Separate template so the large fetch size only applies to exports
+    private JdbcTemplate exportTemplate;
+    private Counter exportedRows;
+
+    @PostConstruct
+    void init() {
+        this.exportTemplate = new JdbcTemplate(dataSource);
+        exportTemplate.setFetchSize(fetchSize);
+        exportedRows = Counter.builder("audit.export.rows").register(meterRegistry);
+    }
+
+    /**
+     * Writes every audit row matching the filters, oldest first. Null filters
+     * are ignored; {@code to} is exclusive. The caller owns the stream.
+     */
+    public long export(LocalDateTime from, LocalDateTime to, Long userId, String action,
+                       AuditLog.ActionStatus status, Format format, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder(SELECT_SQL).append(" WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (from != null) {
+            sql.append(" AND timestamp >= ?");
+            params.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND timestamp < ?");
+            params.add(Timestamp.valueOf(to));
+        }
+        if (userId != null) {
+            sql.append(" AND user_id = ?");
+            params.add(userId);
+        }
+        if (action != null) {
+            Integer actionId = stringDictionary.lookup(action);
+            if (actionId != null) {
+                sql.append(" AND action_id = ?");
+                params.add(actionId);
+            } else {
+                sql.append(" AND 1 = 0");
+            }
+        }
+        if (status != null) {
+            sql.append(" AND status = ?");
+            params.add(status.name());
+        }
+        sql.append(" ORDER BY timestamp, id");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+        long[] count = {0};
+        try {
+            rowWriter.writeHeader();
+            exportTemplate.query(sql.toString(), rs -> {
+                try {
+                    rowWriter.writeRow(rs);
+                } catch (IOException e) {
+                    // Usually the client went away; abort the cursor
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            }, params.toArray());
+            rowWriter.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            exportedRows.increment(count[0]);
+        }
+        return count[0];
+    }
+
+    private interface RowWriter {
+        void writeHeader() throws IOException;
+
+        void writeRow(ResultSet rs) throws IOException, SQLException;
+
+        void finish() throws IOException;
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(Writer writer) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        }
+
+        @Override
+        public void writeHeader() {
+        }
+
+        @Override
+        public void writeRow(ResultSet rs) throws IOException, SQLException {
+            generator.writeStartObject();
+            generator.writeNumberField(COLUMNS[0], rs.getLong(1));
+            long userId = rs.getLong(2);
+            if (rs.wasNull()) {
+                generator.writeNullField(COLUMNS[1]);
+            } else {
+                generator.writeNumberField(COLUMNS[1], userId);
+            }
+            generator.writeStringField(COLUMNS[2], text(rs, 3));
+            generator.writeStringField(COLUMNS[3], text(rs, 4));
+            generator.writeStringField(COLUMNS[4], formatTimestamp(rs.getTimestamp(5)));
+            generator.writeStringField(COLUMNS[5], rs.getString(6));
+            generator.writeStringField(COLUMNS[6], text(rs, 7));
+            generator.writeStringField(COLUMNS[7], rs.getString(8));
+            generator.writeStringField(COLUMNS[8], rs.getString(9));
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.writeRaw('\n');
+            generator.flush();
+        }
+    }
+
+    private final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void writeHeader() throws IOException {
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void writeRow(ResultSet rs) throws IOException, SQLException {
+            writer.write(Long.toString(rs.getLong(1)));
+            writer.write(',');
+            long userId = rs.getLong(2);
+            if (!rs.wasNull()) {
+                writer.write(Long.toString(userId));
+            }
+            for (int column = 3; column <= 9; column++) {
+                writer.write(',');
+                String value = column == 5 ? formatTimestamp(rs.getTimestamp(5)) : text(rs, column);
+                writeField(value);
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    // action and resource are stored as dictionary ids; user agents as an id or, past the dictionary limit, text
+    private String text(ResultSet rs, int column) throws SQLException {
+        if (column == 3 || column == 4 || column == 7) {
+            int id = rs.getInt(column);
+            if (!rs.wasNull()) {
+                return stringDictionary.decode(id);
+            }
+            return column == 7 ? rs.getString(10) : null;
+        }
+        return rs.getString(column);
+    }
+
+    private static String formatTimestamp(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime().toString() : null;
+    }
+}
@@ -0,0 +1,138 @@
+// AuditPartitionManager.java
+package com.userservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drops whole audit_logs partitions for retention. Migration V8 makes
+ * audit_logs interval-partitioned by timestamp on Oracle; this class only
+ * checks at startup whether that happened. On databases without partitioning
+ * (or an Oracle edition without the option) the table is a plain heap table
+ * and {@link #isPartitioned()} reports false, which leaves retention to the
+ * chunked delete.
+ */
+@Service
+public class AuditPartitionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditPartitionManager.class);
+
+    private static final String TABLE = "AUDIT_LOGS";
+    private static final Pattern HIGH_VALUE = Pattern.compile("(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2})");
+    private static final DateTimeFormatter HIGH_VALUE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.partitioning.enabled:true}")
+    private boolean enabled;
+
+    private volatile boolean partitioned;
+    private Counter droppedCounter;
+
+    @PostConstruct
+    void init() {
+        droppedCounter = Counter.builder("audit.partitions.dropped").register(meterRegistry);
+        Gauge.builder("audit.partitions.enabled", this, m -> m.partitioned ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    // Read-only check; the conversion itself is migration V8
+    @EventListener(ApplicationReadyEvent.class)
+    public void detectPartitioning() {
+        if (!enabled || !isOracle()) {
+            logger.info("Audit log partitioning not available, using a plain table");
+            partitioned = false;
+            return;
+        }
+        try {
+            partitioned = readPartitioned();
+        } catch (Exception e) {
+            logger.warn("Could not read audit_logs partitioning, treating it as a plain table: {}", e.getMessage());
+            partitioned = false;
+        }
+        logger.info("Audit log partitioning {}", partitioned ? "active" : "inactive");
+    }
+
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    /**
+     * Drops every partition whose upper bound is at or before the cutoff, so
+     * all of its rows are older than the cutoff. Returns the number dropped;
+     * rows in the partition that straddles the cutoff are left to the
+     * chunked delete.
+     */
+    public int dropPartitionsBefore(LocalDateTime cutoff) {
+        if (!partitioned) {
+            return 0;
+        }
+        int dropped = 0;
+        for (String partition : findPartitionsBefore(cutoff)) {
+            jdbcTemplate.execute("ALTER TABLE audit_logs DROP PARTITION " + partition + " UPDATE GLOBAL INDEXES");
+            droppedCounter.increment();
+            dropped++;
+            logger.info("Dropped audit partition {}", partition);
+        }
+        return dropped;
+    }
+
+    List<String> findPartitionsBefore(LocalDateTime cutoff) {
+        // The first partition is the range anchor of an interval-partitioned table and cannot be dropped
+        List<String> partitions = new ArrayList<>();
+        jdbcTemplate.query(
+                "SELECT partition_name, high_value FROM user_tab_partitions " +
+                "WHERE table_name = ? AND partition_position > 1 ORDER BY partition_position",
+                rs -> {
+                    String name = rs.getString(1);
+                    LocalDateTime upperBound = parseHighValue(rs.getString(2));
+                    if (upperBound != null && !upperBound.isAfter(cutoff)) {
+                        partitions.add(name);
+                    }
+                },
+                TABLE);
+        return partitions;
+    }
+
+    static LocalDateTime parseHighValue(String highValue) {
+        if (highValue == null) {
+            return null;
+        }
+        Matcher matcher = HIGH_VALUE.matcher(highValue);
+        return matcher.find() ? LocalDateTime.parse(matcher.group(1), HIGH_VALUE_FORMAT) : null;
+    }
+
+    private boolean readPartitioned() {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_part_tables WHERE table_name = ?", Integer.class, TABLE);
+        return count != null && count > 0;
+    }
+
+    private boolean isOracle() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return product != null && product.toLowerCase().contains("oracle");
+    }
+}
@@ -0,0 +1,162 @@
+// AuditPolicyService.java
+package com.userservice.service;
+
+import com.userservice.config.ApplicationConfig;
+import com.userservice.config.ApplicationConfig.AuditActionPolicy;
+import com.userservice.dto.AuditEvent;
+import com.userservice.entity.AuditLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides per action whether an audit event is written as a row. Policies
+ * come from app.audit.policies in {@link ApplicationConfig} and can be
+ * replaced at runtime. Events that are sampled away or counter-only still
+ * count: they are tallied per minute into the audit rollups and their users
+ * go into the active-user sketches, so statistics cover every event. FAILED
+ * and security events are always written.
+ */
+@Service
+public class AuditPolicyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditPolicyService.class);
+
+    @Autowired
+    private ApplicationConfig applicationConfig;
+
+    @Autowired
+    private AuditRollupService auditRollupService;
+
+    @Autowired
+    private ActiveUserSketches activeUserSketches;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile Map<String, AuditActionPolicy> policies = Map.of();
+    private final Map<AuditRollupService.MinuteKey, Long> pendingCounts = new ConcurrentHashMap<>();
+    private final Map<String, Counter> skippedCounters = new ConcurrentHashMap<>();
+    private TransactionTemplate flushTransaction;
+
+    @PostConstruct
+    void init() {
+        this.flushTransaction = new TransactionTemplate(transactionManager);
+        flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        update(applicationConfig.getAudit().getPolicies());
+    }
+
+    /**
+     * True if the event should be written as an audit_logs row. Otherwise it
+     * has been counted and the caller drops it.
+     */
+    public boolean shouldWrite(AuditEvent event) {
+        AuditActionPolicy policy = policies.get(event.getAction());
+        if (policy == null || policy.getMode() == AuditActionPolicy.Mode.FULL
+                || event.getStatus() == AuditLog.ActionStatus.FAILED
+                || AuditService.SECURITY_ACTIONS.contains(event.getAction())) {
+            return true;
+        }
+        if (policy.getMode() == AuditActionPolicy.Mode.SAMPLED
+                && ThreadLocalRandom.current().nextInt(policy.getSampleRate()) == 0) {
+            // Counted by the rollups when the row is written
+            return true;
+        }
+
+        pendingCounts.merge(new AuditRollupService.MinuteKey(
+                event.getTimestamp().truncatedTo(ChronoUnit.MINUTES), event.getAction()), 1L, Long::sum);
+        activeUserSketches.record(event.getUserId(), event.getTimestamp());
+        skippedCounter(event.getAction(), policy.getMode()).increment();
+        return false;
+    }
+
+    public Map<String, AuditActionPolicy> getPolicies() {
+        return policies;
+    }
+
+    /**
+     * Replaces the active policies on this instance. Actions are matched
+     * case-insensitively; actions left out go back to FULL.
+     */
+    public Map<String, AuditActionPolicy> update(Map<String, AuditActionPolicy> requested) {
+        Map<String, AuditActionPolicy> validated = new HashMap<>();
+        requested.forEach((action, policy) -> {
+            if (policy == null || policy.getMode() == null) {
+                throw new IllegalArgumentException("Audit policy for " + action + " needs a mode");
+            }
+            if (policy.getMode() == AuditActionPolicy.Mode.SAMPLED && policy.getSampleRate() < 1) {
+                throw new IllegalArgumentException("Audit sample rate for " + action + " must be at least 1");
+            }
+            validated.put(action.toUpperCase(Locale.ROOT),
+                    new AuditActionPolicy(policy.getMode(), Math.max(1, policy.getSampleRate())));
+        });
+        this.policies = Map.copyOf(validated);
+        validated.forEach((action, policy) ->
+                logger.info("Audit policy for {}: {} (rate {})", action, policy.getMode(), policy.getSampleRate()));
+        return policies;
+    }
+
+    // Back to the policies in the application configuration
+    public Map<String, AuditActionPolicy> reset() {
+        return update(applicationConfig.getAudit().getPolicies());
+    }
+
+    @Scheduled(fixedDelayString = "${audit.policy.flush-interval:10000}")
+    public void flush() {
+        if (pendingCounts.isEmpty()) {
+            return;
+        }
+        // remove() is atomic with merge(), so no increment is lost between reading and clearing
+        Map<AuditRollupService.MinuteKey, Long> counts = new HashMap<>();
+        for (AuditRollupService.MinuteKey key : pendingCounts.keySet()) {
+            Long count = pendingCounts.remove(key);
+            if (count != null) {
+                counts.put(key, count);
+            }
+        }
+        try {
+            try {
+                flushTransaction.executeWithoutResult(status -> auditRollupService.addCounts(counts));
+            } catch (DuplicateKeyException e) {
+                // Another instance created the same rollup bucket concurrently; the retry merges into it
+                flushTransaction.executeWithoutResult(status -> auditRollupService.addCounts(counts));
+            }
+        } catch (Exception e) {
+            counts.forEach((key, count) -> pendingCounts.merge(key, count, Long::sum));
+            logger.error("Could not add {} skipped audit counts to the rollups", counts.size(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    private Counter skippedCounter(String action, AuditActionPolicy.Mode mode) {
+        return skippedCounters.computeIfAbsent(action + '|' + mode, key -> Counter.builder("audit.policy.skipped")
+                .description("Audit events counted but not written as rows")
+                .tag("action", action)
+                .tag("mode", mode.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,167 @@
+// AuditRetentionService.java
+package com.userservice.service;
+
+import com.userservice.repository.AuditLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Removes audit rows older than the retention period. When the table is
+ * partitioned, partitions lying entirely before the cutoff are dropped first;
+ * the rest is deleted in bounded chunks, one transaction per chunk, pausing
+ * between chunks so the purge never holds long locks or a large undo segment.
+ * Each chunk is selected by the timestamp predicate alone, so a run that is
+ * stopped or times out simply resumes from the oldest remaining row.
+ */
+@Service
+public class AuditRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditRetentionService.class);
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private AuditPartitionManager auditPartitionManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audit.retention.days:90}")
+    private int retentionDays;
+
+    @Value("${audit.retention.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${audit.retention.chunk-pause:100}")
+    private long chunkPauseMillis;
+
+    @Value("${audit.retention.max-run-time:600000}")
+    private long maxRunTimeMillis;
+
+    private TransactionTemplate chunkTransaction;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopping;
+
+    private final AtomicLong lastRunDeleted = new AtomicLong();
+    private final AtomicLong lastRunCompletedAt = new AtomicLong();
+    private Counter deletedCounter;
+    private Counter chunkCounter;
+    private Timer chunkTimer;
+
+    @PostConstruct
+    void init() {
+        // Own transaction per chunk, even when called from inside a transactional service
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        deletedCounter = Counter.builder("audit.retention.deleted")
+                .description("Audit rows removed by the retention job")
+                .register(meterRegistry);
+        chunkCounter = Counter.builder("audit.retention.chunks").register(meterRegistry);
+        chunkTimer = Timer.builder("audit.retention.chunk.duration").register(meterRegistry);
+        Gauge.builder("audit.retention.last-run.deleted", lastRunDeleted, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("audit.retention.last-run.completed", lastRunCompletedAt, AtomicLong::get)
+                .description("Epoch millis when the last run finished without a backlog")
+                .register(meterRegistry);
+        Gauge.builder("audit.retention.running", running, r -> r.get() ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${audit.retention.interval:3600000}",
+               initialDelayString = "${audit.retention.initial-delay:300000}")
+    public void runRetention() {
+        if (enabled) {
+            purgeOlderThan(LocalDateTime.now().minusDays(retentionDays));
+        }
+    }
+
+    /**
+     * Purges rows older than the cutoff. Returns the number deleted in this
+     * run; a second caller while a run is in progress gets 0.
+     */
+    public long purgeOlderThan(LocalDateTime cutoff) {
+        if (!running.compareAndSet(false, true)) {
+            logger.debug("Audit retention already running, skipping");
+            return 0;
+        }
+        long deleted = 0;
+        long deadline = System.currentTimeMillis() + maxRunTimeMillis;
+        boolean backlog = false;
+        try {
+            int droppedPartitions = auditPartitionManager.dropPartitionsBefore(cutoff);
+            if (droppedPartitions > 0) {
+                logger.info("Audit retention dropped {} partitions older than {}", droppedPartitions, cutoff);
+            }
+            while (!stopping) {
+                Integer removed = chunkTimer.record(() ->
+                        chunkTransaction.execute(status -> auditLogRepository.deleteOlderThan(cutoff, chunkSize)));
+                int count = removed != null ? removed : 0;
+                deleted += count;
+                deletedCounter.increment(count);
+                chunkCounter.increment();
+
+                if (count < chunkSize) {
+                    break;
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    backlog = true;
+                    break;
+                }
+                Thread.sleep(chunkPauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            backlog = true;
+        } catch (Exception e) {
+            // Chunks already committed stay deleted; the next run carries on from there
+            logger.error("Audit retention stopped after deleting {} rows", deleted, e);
+            backlog = true;
+        } finally {
+            running.set(false);
+        }
+
+        lastRunDeleted.set(deleted);
+        if (!backlog && !stopping) {
+            lastRunCompletedAt.set(System.currentTimeMillis());
+        }
+        if (deleted > 0 || backlog) {
+            logger.info("Audit retention removed {} rows older than {}{}", deleted, cutoff,
+                    backlog ? ", backlog remains" : "");
+        }
+        return deleted;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @PreDestroy
+    void stop() {
+        stopping = true;
+    }
+}
@@ -0,0 +1,180 @@
+// AuditRollupService.java
+package com.userservice.service;
+
+import com.userservice.dto.AuditEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-minute and per-hour audit aggregates. The audit writer folds each
+ * batch into minute buckets in the same transaction as the inserts; a
+ * scheduled job compacts complete hours from the minute rows and expires old
+ * minutes. The newest hour row is the compaction watermark, so compaction
+ * resumes where any instance left off, including after downtime. Statistics read whole hours from the hour table and only the
+ * ragged edges from minutes, so their cost does not grow with audit volume.
+ * Distinct users are tracked separately in {@link ActiveUserSketches}.
+ */
+@Service
+public class AuditRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditRollupService.class);
+
+    private static final String MERGE_MINUTE_SQL =
+            "MERGE INTO audit_rollup_minute r " +
+            "USING (SELECT ? AS bucket_start, ? AS action FROM dual) s " +
+            "ON (r.bucket_start = s.bucket_start AND r.action = s.action) " +
+            "WHEN MATCHED THEN UPDATE SET r.event_count = r.event_count + ? " +
+            "WHEN NOT MATCHED THEN INSERT (bucket_start, action, event_count) VALUES (s.bucket_start, s.action, ?)";
+
+    // Recomputes hour rows from minutes; setting rather than adding keeps reruns idempotent
+    private static final String COMPACT_HOURS_SQL =
+            "MERGE INTO audit_rollup_hour h " +
+            "USING (SELECT TRUNC(bucket_start, 'HH') AS bucket_start, action, SUM(event_count) AS event_count " +
+            "       FROM audit_rollup_minute WHERE bucket_start >= ? AND bucket_start < ? " +
+            "       GROUP BY TRUNC(bucket_start, 'HH'), action) m " +
+            "ON (h.bucket_start = m.bucket_start AND h.action = m.action) " +
+            "WHEN MATCHED THEN UPDATE SET h.event_count = m.event_count " +
+            "WHEN NOT MATCHED THEN INSERT (bucket_start, action, event_count) " +
+            "VALUES (m.bucket_start, m.action, m.event_count)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ActiveUserSketches activeUserSketches;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.rollup.recompact-hours:3}")
+    private int recompactHours;
+
+    @Value("${audit.rollup.minute-retention-hours:48}")
+    private int minuteRetentionHours;
+
+    @Value("${audit.rollup.hour-retention-days:400}")
+    private int hourRetentionDays;
+
+    // Hour rows before this instant are known to be complete
+    private volatile LocalDateTime compactedUntil;
+    private Timer compactTimer;
+
+    @PostConstruct
+    void init() {
+        compactTimer = Timer.builder("audit.rollup.compact").register(meterRegistry);
+        LocalDateTime lastHour = lastCompactedHour();
+        compactedUntil = lastHour != null ? lastHour.plusHours(1) : null;
+    }
+
+    /**
+     * Folds a batch of written events into the minute rollups. Must run in
+     * the transaction that inserts the batch so counts and rows stay in step.
+     */
+    public void apply(List<AuditEvent> batch) {
+        Map<MinuteKey, long[]> actionCounts = new HashMap<>();
+        for (AuditEvent event : batch) {
+            LocalDateTime minute = event.getTimestamp().truncatedTo(ChronoUnit.MINUTES);
+            actionCounts.computeIfAbsent(new MinuteKey(minute, event.getAction()), k -> new long[1])[0]++;
+            // Sketches ignore repeats, so a replayed batch cannot inflate the active-user counts
+            activeUserSketches.record(event.getUserId(), event.getTimestamp());
+        }
+
+        List<Object[]> actionRows = new ArrayList<>(actionCounts.size());
+        actionCounts.forEach((key, count) -> actionRows.add(new Object[]{
+                Timestamp.valueOf(key.minute()), key.action(), count[0], count[0]}));
+        jdbcTemplate.batchUpdate(MERGE_MINUTE_SQL, actionRows);
+    }
+
+    /**
+     * Adds counts for events that were not written as rows (sampled away or
+     * counter-only), so the statistics still cover every event. Like
+     * {@link #apply}, runs in the caller's transaction.
+     */
+    void addCounts(Map<MinuteKey, Long> counts) {
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> rows.add(new Object[]{
+                Timestamp.valueOf(key.minute()), key.action(), count, count}));
+        jdbcTemplate.batchUpdate(MERGE_MINUTE_SQL, rows);
+    }
+
+    @Scheduled(fixedDelayString = "${audit.rollup.compact-interval:300000}",
+               initialDelayString = "${audit.rollup.compact-initial-delay:30000}")
+    public void compact() {
+        compactTimer.record(() -> {
+            LocalDateTime currentHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+            try {
+                // Resume from the newest hour row, and always redo recent hours to pick up late and replayed
+                // events; nothing before the oldest retained minute can be rebuilt
+                LocalDateTime oldestMinute = currentHour.minusHours(minuteRetentionHours);
+                LocalDateTime from = currentHour.minusHours(recompactHours);
+                LocalDateTime lastHour = lastCompactedHour();
+                if (lastHour == null || lastHour.isBefore(from)) {
+                    from = lastHour != null && lastHour.isAfter(oldestMinute) ? lastHour : oldestMinute;
+                }
+                jdbcTemplate.update(COMPACT_HOURS_SQL, Timestamp.valueOf(from), Timestamp.valueOf(currentHour));
+                compactedUntil = currentHour;
+
+                int minutes = jdbcTemplate.update("DELETE FROM audit_rollup_minute WHERE bucket_start < ?",
+                        Timestamp.valueOf(currentHour.minusHours(minuteRetentionHours)));
+                int hours = jdbcTemplate.update("DELETE FROM audit_rollup_hour WHERE bucket_start < ?",
+                        Timestamp.valueOf(currentHour.minusDays(hourRetentionDays)));
+                if (minutes + hours > 0) {
+                    logger.debug("Expired {} minute and {} hour rollup rows", minutes, hours);
+                }
+            } catch (Exception e) {
+                logger.error("Audit rollup compaction failed", e);
+            }
+        });
+    }
+
+    private LocalDateTime lastCompactedHour() {
+        Timestamp last = jdbcTemplate.queryForObject("SELECT MAX(bucket_start) FROM audit_rollup_hour", Timestamp.class);
+        return last != null ? last.toLocalDateTime() : null;
+    }
+
+    /**
+     * Event counts per action since the given time, most frequent first, as
+     * [action, count] rows.
+     */
+    public List<Object[]> getActionCounts(LocalDateTime since) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime sinceMinute = since.truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime hoursFrom = since.truncatedTo(ChronoUnit.HOURS);
+        if (hoursFrom.isBefore(since)) {
+            hoursFrom = hoursFrom.plusHours(1);
+        }
+        LocalDateTime hoursTo = compactedUntil != null && compactedUntil.isAfter(hoursFrom) ? compactedUntil : hoursFrom;
+
+        // [since, hoursFrom) and [hoursTo, now] come from minutes, whole hours in between from hours
+        return jdbcTemplate.query(
+                "SELECT action, SUM(event_count) AS total FROM (" +
+                "  SELECT action, event_count FROM audit_rollup_minute WHERE bucket_start >= ? AND bucket_start < ?" +
+                "  UNION ALL" +
+                "  SELECT action, event_count FROM audit_rollup_hour WHERE bucket_start >= ? AND bucket_start < ?" +
+                "  UNION ALL" +
+                "  SELECT action, event_count FROM audit_rollup_minute WHERE bucket_start >= ? AND bucket_start <= ?" +
+                ") GROUP BY action ORDER BY total DESC",
+                (rs, rowNum) -> new Object[]{rs.getString(1), rs.getLong(2)},
+                Timestamp.valueOf(sinceMinute), Timestamp.valueOf(hoursFrom),
+                Timestamp.valueOf(hoursFrom), Timestamp.valueOf(hoursTo),
+                Timestamp.valueOf(hoursTo), Timestamp.valueOf(now));
+    }
+
+    record MinuteKey(LocalDateTime minute, String action) {}
+}
@@ -1,99 +1,182 @@
 // AuditService.java
 package com.userservice.service;
 
+import com.userservice.dto.AuditEvent;
+import com.userservice.dto.AuditLogResponse;
+import com.userservice.dto.AuditSearchCriteria;
+import com.userservice.dto.AuditSearchResponse;
 import com.userservice.entity.AuditLog;
 import com.userservice.entity.User;
 import com.userservice.repository.AuditLogRepository;
+import com.userservice.util.AuditCursor;
+import com.userservice.util.SecurityEventRing;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class AuditService {
 
+    public static final Set<String> SECURITY_ACTIONS = Set.of("LOGIN_FAILED", "LOGIN_BLOCKED",
+            "UNAUTHORIZED_ACCESS", "PERMISSION_DENIED");
+
     @Autowired
     private AuditLogRepository auditLogRepository;
 
+    @Autowired
+    private AuditWriter auditWriter;
+
+    @Autowired
+    private AuditRetentionService auditRetentionService;
+
+    @Autowired
+    private AuditRollupService auditRollupService;
+
+    @Autowired
+    private ActiveUserSketches activeUserSketches;
+
+    @Autowired
+    private StringDictionary stringDictionary;
+
+    @Autowired
+    private AuditPolicyService auditPolicyService;
+
+    @Value("${audit.search.max-page-size:500}")
+    private int maxSearchPageSize;
+
+    @Value("${audit.security-events.ring-size:1024}")
+    private int securityEventRingSize;
+
+    @Value("${audit.security-events.max-results:1000}")
+    private int maxSecurityEventResults;
+
+    private SecurityEventRing securityEvents;
+
+    @PostConstruct
+    void init() {
+        this.securityEvents = new SecurityEventRing(securityEventRingSize);
+    }
+
+    // Writes are queued and batch-inserted in the background, off the caller's transaction
     public void logAction(User user, String action, String resource,
                           String ipAddress, AuditLog.ActionStatus status) {
-        AuditLog auditLog = new AuditLog(user, action, resource, ipAddress, status);
-        auditLogRepository.save(auditLog);
+        record(AuditEvent.of(user, action, resource, ipAddress, null, status, null));
     }
 
     public void logAction(User user, String action, String resource,
                           String ipAddress, AuditLog.ActionStatus status, String details) {
-        AuditLog auditLog = new AuditLog(user, action, resource, ipAddress, status);
-        auditLog.setDetails(details);
-        auditLogRepository.save(auditLog);
+        record(AuditEvent.of(user, action, resource, ipAddress, null, status, details));
     }
 
     public void logActionWithUserAgent(User user, String action, String resource,
                                        String ipAddress, String userAgent,
                                        AuditLog.ActionStatus status) {
-        AuditLog auditLog = new AuditLog(user, action, resource, ipAddress, status);
-        auditLog.setUserAgent(userAgent);
-        auditLogRepository.save(auditLog);
+        record(AuditEvent.of(user, action, resource, ipAddress, userAgent, status, null));
     }
 
     public void logActionWithDetails(User user, String action, String resource,
                                      String ipAddress, String userAgent,
                                      AuditLog.ActionStatus status, String details) {
-        AuditLog auditLog = new AuditLog(user, action, resource, ipAddress, status);
-        auditLog.setUserAgent(userAgent);
-        auditLog.setDetails(details);
-        auditLogRepository.save(auditLog);
-    }
-
-    public Page<AuditLog> getUserAuditHistory(Long userId, Pageable pageable) {
-        return auditLogRepository.findByUserIdOrderByTimestampDesc(userId, pageable);
+        record(AuditEvent.of(user, action, resource, ipAddress, userAgent, status, details));
     }
 
-    public List<AuditLog> getFailedLoginAttempts(String ipAddress, LocalDateTime since) {
-        return auditLogRepository.findFailedAttemptsByIp(ipAddress, since);
+    private void record(AuditEvent event) {
+        if (SECURITY_ACTIONS.contains(event.getAction())) {
+            securityEvents.add(event);
+        }
+        // High-volume actions may be sampled or only counted; see AuditPolicyService
+        if (auditPolicyService.shouldWrite(event)) {
+            auditWriter.submit(event);
+        }
     }
 
-    public List<AuditLog> getUserActions(Long userId, List<String> actions,
-                                         LocalDateTime startDate, LocalDateTime endDate) {
-        return auditLogRepository.findUserActionsBetween(userId, actions, startDate, endDate);
+    /**
+     * Keyset-paginated search, newest first. Pass the previous response's
+     * nextCursor to continue; it is null once there are no more rows.
+     */
+    @Transactional(readOnly = true)
+    public AuditSearchResponse searchAuditLogs(AuditSearchCriteria criteria, String cursor, int limit) {
+        if (criteria.getAction() != null && stringDictionary.lookup(criteria.getAction()) == null) {
+            // Never recorded, so nothing can match
+            return new AuditSearchResponse(List.of(), null);
+        }
+        AuditCursor after = cursor != null && !cursor.isEmpty() ? AuditCursor.decode(cursor) : null;
+        int pageSize = Math.max(1, Math.min(limit, maxSearchPageSize));
+
+        // One extra row tells us whether another page exists
+        List<AuditLog> rows = auditLogRepository.searchPage(criteria, after, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<AuditLog> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            AuditLog last = page.get(page.size() - 1);
+            nextCursor = new AuditCursor(last.getTimestamp(), last.getId()).encode();
+        }
+        return new AuditSearchResponse(
+                page.stream().map(AuditLogResponse::from).collect(Collectors.toList()),
+                nextCursor);
     }
 
+    // Both read the pre-aggregated rollups instead of scanning audit_logs
     public List<Object[]> getActionStatistics(LocalDateTime since) {
-        return auditLogRepository.findMostFrequentActions(since);
+        return auditRollupService.getActionCounts(since);
     }
 
+    // Approximate (HyperLogLog, see ActiveUserSketches for the error bound)
     public Long getActiveUsersCount(LocalDateTime since) {
+        return activeUserSketches.estimateActiveUsers(since);
+    }
+
+    // Exact COUNT(DISTINCT) over the raw audit log, for audits; cost grows with the window
+    @Transactional(readOnly = true)
+    public Long getExactActiveUsersCount(LocalDateTime since) {
         return auditLogRepository.countActiveUsersInPeriod(since);
     }
 
-    public List<AuditLog> getRecentAuditLogs(String action, int limit) {
-        return auditLogRepository.findByActionOrderByTimestampDesc(action)
-                .stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+    public double getActiveUsersRelativeError() {
+        return activeUserSketches.getRelativeStandardError();
     }
 
-    public List<AuditLog> getAuditLogsByStatus(AuditLog.ActionStatus status, LocalDateTime since) {
-        return auditLogRepository.findByStatusSince(status, since);
+    public List<AuditLog> getRecentAuditLogs(String action, int limit) {
+        if (stringDictionary.lookup(action) == null) {
+            return List.of();
+        }
+        return auditLogRepository.findRecentByAction(action, PageRequest.of(0, Math.max(1, limit)));
     }
 
+    // All security actions in the window, newest first, capped at max-results
     public List<AuditLog> getSecurityEvents(LocalDateTime since) {
-        List<String> securityActions = List.of("LOGIN_FAILED", "LOGIN_BLOCKED",
-                "UNAUTHORIZED_ACCESS", "PERMISSION_DENIED");
-        return auditLogRepository.findByActionOrderByTimestampDesc("LOGIN_FAILED")
+        // Query parameters go through the interning converter, so only pass actions already in the dictionary
+        List<String> actions = SECURITY_ACTIONS.stream()
+                .filter(action -> stringDictionary.lookup(action) != null)
+                .collect(Collectors.toList());
+        if (actions.isEmpty()) {
+            return List.of();
+        }
+        return auditLogRepository.findRecentByActionsSince(actions, since,
+                PageRequest.of(0, maxSecurityEventResults));
+    }
+
+    // Served from memory: the latest security events recorded by this instance
+    public List<AuditLogResponse> getRecentSecurityEvents(LocalDateTime since, int limit) {
+        return securityEvents.recent(since, Math.max(1, Math.min(limit, securityEvents.getCapacity())))
                 .stream()
-                .filter(log -> log.getTimestamp().isAfter(since))
+                .map(AuditLogResponse::from)
                 .collect(Collectors.toList());
     }
 
     public Long getFailedLoginAttemptsCount(String ipAddress, LocalDateTime since) {
-        return (long) auditLogRepository.findFailedAttemptsByIp(ipAddress, since).size();
+        return auditLogRepository.countFailedAttemptsByIp(ipAddress, since);
     }
 
     public void logSecurityEvent(User user, String action, String resource,
@@ -102,12 +185,8 @@ public class AuditService {
                 AuditLog.ActionStatus.FAILED, details);
     }
 
-    public void cleanupOldAuditLogs(LocalDateTime cutoffDate) {
-        List<AuditLog> oldLogs = auditLogRepository.findAll()
-                .stream()
-                .filter(log -> log.getTimestamp().isBefore(cutoffDate))
-                .collect(Collectors.toList());
-
-        auditLogRepository.deleteAll(oldLogs);
+    // Chunked delete with a commit per chunk; see AuditRetentionService
+    public long cleanupOldAuditLogs(LocalDateTime cutoffDate) {
+        return auditRetentionService.purgeOlderThan(cutoffDate);
     }
 }
\ No newline at end of file
@@ -0,0 +1,490 @@
+// AuditWriter.java
+package com.userservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.userservice.dto.AuditEvent;
+import com.userservice.util.AuditSpool;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes audit writes off the request path. Events go into a bounded queue that
+ * a single background thread drains, flushing JDBC batch inserts once a batch
+ * is full or the flush interval has passed. When the queue is full the
+ * overflow policy decides whether callers block, events are dropped, or they
+ * are spilled to the local {@link AuditSpool}. Overflowing events are handed
+ * to a second bounded buffer that a spooler thread appends to the spool, so
+ * callers never wait on the spool's lock or fsync; when that buffer is full
+ * too, the event is dropped. Under SPILL, batches the
+ * database rejects are spooled too, and the writer replays the spool in order
+ * whenever it is idle, skipping events whose ids are already in audit_logs.
+ * A replayed batch that keeps failing while the database is reachable is
+ * quarantined by the spool.
+ */
+@Service
+public class AuditWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditWriter.class);
+
+    // Ids come from the sequence inside the insert, so a batch costs no extra round trips
+    private static final String INSERT_SQL =
+            "INSERT INTO audit_logs (id, event_id, user_id, action_id, resource_id, timestamp, ip_address, user_agent_id, user_agent, details, status) " +
+            "VALUES (audit_sequence.NEXTVAL, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Oracle caps IN lists at 1000 expressions
+    private static final int MAX_IN_LIST = 1000;
+
+    public enum OverflowPolicy {
+        BLOCK, DROP, SPILL
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AuditRollupService auditRollupService;
+
+    @Autowired
+    private StringDictionary stringDictionary;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.writer.async:true}")
+    private boolean async;
+
+    @Value("${audit.writer.capacity:8192}")
+    private int capacity;
+
+    @Value("${audit.writer.batch-size:500}")
+    private int batchSize;
+
+    @Value("${audit.writer.flush-interval:200}")
+    private long flushIntervalMillis;
+
+    @Value("${audit.writer.overflow-policy:SPILL}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${audit.writer.block-timeout:1000}")
+    private long blockTimeoutMillis;
+
+    @Value("${audit.spool.dir:${java.io.tmpdir}/userservice-audit-spool}")
+    private String spoolDir;
+
+    @Value("${audit.spool.segment-size:16777216}")
+    private long spoolSegmentBytes;
+
+    @Value("${audit.spool.fsync:true}")
+    private boolean spoolFsync;
+
+    @Value("${audit.spool.retry-interval:5000}")
+    private long replayRetryMillis;
+
+    @Value("${audit.spool.max-replay-failures:5}")
+    private int maxReplayFailures;
+
+    @Value("${audit.spool.buffer-capacity:8192}")
+    private int spillCapacity;
+
+    @Value("${audit.writer.shutdown-timeout:10000}")
+    private long shutdownTimeoutMillis;
+
+    private BlockingQueue<AuditEvent> queue;
+    private BlockingQueue<AuditEvent> spillQueue;
+    private TransactionTemplate batchTransaction;
+    private Thread writerThread;
+    private Thread spoolerThread;
+    private volatile boolean running;
+    private volatile boolean spooling;
+    private AuditSpool spool;
+    private long nextReplayAttempt;
+
+    private Counter writtenCounter;
+    private Counter droppedCounter;
+    private Counter spilledCounter;
+    private Counter failedCounter;
+    private Counter replaySkippedCounter;
+    private Timer flushTimer;
+    private Timer spoolAppendTimer;
+
+    @PostConstruct
+    void init() {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.spillQueue = new ArrayBlockingQueue<>(spillCapacity);
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        Gauge.builder("audit.writer.queue.depth", queue, BlockingQueue::size)
+                .description("Audit events waiting to be written")
+                .register(meterRegistry);
+        writtenCounter = Counter.builder("audit.writer.written").register(meterRegistry);
+        droppedCounter = Counter.builder("audit.writer.dropped")
+                .description("Audit events discarded because the queue was full")
+                .register(meterRegistry);
+        spilledCounter = Counter.builder("audit.writer.spilled")
+                .description("Audit events written to the local spool")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("audit.writer.failed")
+                .description("Audit events lost because a batch insert failed")
+                .register(meterRegistry);
+        replaySkippedCounter = Counter.builder("audit.spool.replay.skipped")
+                .description("Replayed audit events that were already written")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("audit.writer.flush").register(meterRegistry);
+        spoolAppendTimer = Timer.builder("audit.spool.append")
+                .description("Time to append, and fsync if enabled, a batch of events to the spool")
+                .register(meterRegistry);
+        Gauge.builder("audit.spool.buffer.depth", spillQueue, BlockingQueue::size)
+                .description("Overflowing audit events waiting for the spooler thread")
+                .register(meterRegistry);
+
+        try {
+            spool = new AuditSpool(Paths.get(spoolDir), spoolSegmentBytes, spoolFsync, maxReplayFailures, objectMapper);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open audit spool " + spoolDir, e);
+        }
+        Gauge.builder("audit.spool.pending.bytes", spool, AuditSpool::pendingBytes)
+                .description("Spooled audit bytes waiting to be replayed")
+                .register(meterRegistry);
+        Gauge.builder("audit.spool.corrupt", spool, AuditSpool::getCorruptRecords)
+                .description("Spool records skipped because they failed their checksum or could not be read")
+                .register(meterRegistry);
+        Gauge.builder("audit.spool.quarantined", spool, AuditSpool::getQuarantinedRecords)
+                .description("Spooled audit events moved aside after repeated replay failures")
+                .register(meterRegistry);
+
+        if (async) {
+            running = true;
+            writerThread = new Thread(this::runWriter, "AuditWriter");
+            writerThread.setDaemon(true);
+            writerThread.start();
+
+            spooling = true;
+            spoolerThread = new Thread(this::runSpooler, "AuditSpooler");
+            spoolerThread.setDaemon(true);
+            spoolerThread.start();
+        }
+    }
+
+    public void submit(AuditEvent event) {
+        if (!running) {
+            // Synchronous mode, or the writer has already been shut down
+            flush(List.of(event));
+            return;
+        }
+        if (queue.offer(event)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    if (queue.offer(event, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                droppedCounter.increment();
+                logger.warn("Audit queue full, dropped {} event", event.getAction());
+            }
+            case DROP -> droppedCounter.increment();
+            case SPILL -> {
+                if (!spillQueue.offer(event)) {
+                    droppedCounter.increment();
+                    logger.warn("Audit queue and spool buffer full, dropped {} event", event.getAction());
+                }
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void runWriter() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditEvent first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    replaySpool();
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    AuditEvent next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                // Keep draining; the batch goes to the spool, whose replay skips rows that did commit
+                logger.error("Audit writer failed on a batch of {} events", batch.size(), e);
+                if (!batch.isEmpty()) {
+                    spill(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    // Appends overflowing events in batches, so one fsync covers many events
+    private void runSpooler() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (spooling || !spillQueue.isEmpty()) {
+            try {
+                // Never interrupted: an interrupt during a write would close the spool's channel
+                AuditEvent first = spillQueue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                spillQueue.drainTo(batch, batchSize - 1);
+                spill(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<AuditEvent> batch) {
+        try {
+            flushTimer.record(() -> {
+                writeBatch(batch, false);
+            });
+            writtenCounter.increment(batch.size());
+        } catch (Exception e) {
+            if (overflowPolicy == OverflowPolicy.SPILL) {
+                logger.warn("Audit batch insert failed, spilling {} events", batch.size(), e);
+                spill(batch);
+            } else {
+                failedCounter.increment(batch.size());
+                logger.error("Audit batch insert failed, {} events lost", batch.size(), e);
+            }
+        }
+    }
+
+    // Rows and their rollup counts commit together, so a failed batch can be spilled and replayed safely
+    private int writeBatch(List<AuditEvent> batch, boolean replay) {
+        // New dictionary strings commit on their own connection; do it before the batch holds one
+        for (AuditEvent event : batch) {
+            stringDictionary.intern(event.getAction());
+            stringDictionary.intern(event.getResource());
+            stringDictionary.internBounded(event.getUserAgent());
+        }
+        try {
+            return batchTransaction.execute(status -> insertAndRollUp(batch, replay));
+        } catch (DuplicateKeyException e) {
+            // Another instance created the same rollup bucket concurrently; the retry merges into it
+            return batchTransaction.execute(status -> insertAndRollUp(batch, replay));
+        }
+    }
+
+    private int insertAndRollUp(List<AuditEvent> batch, boolean replay) {
+        // A spooled batch may have committed before the spool checkpoint was written
+        List<AuditEvent> pending = replay ? withoutWrittenEvents(batch) : batch;
+        if (!pending.isEmpty()) {
+            insertBatch(pending);
+            auditRollupService.apply(pending);
+        }
+        return pending.size();
+    }
+
+    private List<AuditEvent> withoutWrittenEvents(List<AuditEvent> batch) {
+        LocalDateTime from = batch.get(0).getTimestamp();
+        LocalDateTime to = from;
+        for (AuditEvent event : batch) {
+            from = event.getTimestamp().isBefore(from) ? event.getTimestamp() : from;
+            to = event.getTimestamp().isAfter(to) ? event.getTimestamp() : to;
+        }
+
+        Set<String> written = new HashSet<>();
+        for (int start = 0; start < batch.size(); start += MAX_IN_LIST) {
+            List<AuditEvent> chunk = batch.subList(start, Math.min(start + MAX_IN_LIST, batch.size()));
+            Object[] args = new Object[chunk.size() + 2];
+            // The timestamp range keeps the lookup to the partitions the batch can be in
+            args[0] = Timestamp.valueOf(from);
+            args[1] = Timestamp.valueOf(to);
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i + 2] = chunk.get(i).getEventId();
+            }
+            written.addAll(jdbcTemplate.queryForList(
+                    "SELECT event_id FROM audit_logs WHERE timestamp BETWEEN ? AND ? AND event_id IN (" +
+                    String.join(",", Collections.nCopies(chunk.size(), "?")) + ")",
+                    String.class, args));
+        }
+        if (written.isEmpty()) {
+            return batch;
+        }
+        List<AuditEvent> pending = new ArrayList<>(batch.size() - written.size());
+        for (AuditEvent event : batch) {
+            if (!written.contains(event.getEventId())) {
+                pending.add(event);
+            }
+        }
+        replaySkippedCounter.increment(batch.size() - pending.size());
+        return pending;
+    }
+
+    private void insertBatch(List<AuditEvent> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, event) -> {
+            ps.setString(1, event.getEventId());
+            if (event.getUserId() != null) {
+                ps.setLong(2, event.getUserId());
+            } else {
+                ps.setNull(2, Types.NUMERIC);
+            }
+            // Already interned by writeBatch, so these are cache hits
+            ps.setInt(3, stringDictionary.intern(event.getAction()));
+            ps.setInt(4, stringDictionary.intern(event.getResource()));
+            ps.setTimestamp(5, Timestamp.valueOf(event.getTimestamp()));
+            ps.setString(6, event.getIpAddress());
+            // Past the dictionary limit the agent is kept as text instead
+            Integer userAgentId = stringDictionary.internBounded(event.getUserAgent());
+            if (userAgentId != null) {
+                ps.setInt(7, userAgentId);
+                ps.setNull(8, Types.VARCHAR);
+            } else {
+                ps.setNull(7, Types.NUMERIC);
+                ps.setString(8, event.getUserAgent());
+            }
+            ps.setString(9, event.getDetails());
+            ps.setString(10, event.getStatus().name());
+        });
+    }
+
+    private void spill(List<AuditEvent> events) {
+        try {
+            spoolAppendTimer.recordCallable(() -> {
+                spool.append(events);
+                return null;
+            });
+            spilledCounter.increment(events.size());
+        } catch (Exception e) {
+            failedCounter.increment(events.size());
+            logger.error("Could not spool {} audit events", events.size(), e);
+        }
+    }
+
+    // Writes spooled events back in order once the queue has room; runs on the writer thread
+    private void replaySpool() {
+        if (!spool.hasPending() || queue.size() > capacity / 2 || System.currentTimeMillis() < nextReplayAttempt) {
+            return;
+        }
+        try {
+            int replayed = spool.replay(batchSize, this::replayBatch);
+            if (replayed > 0) {
+                logger.info("Replayed {} spooled audit events", replayed);
+            }
+        } catch (Exception e) {
+            // The database is likely still unavailable; back off instead of retrying on every idle poll
+            nextReplayAttempt = System.currentTimeMillis() + replayRetryMillis;
+            logger.warn("Audit spool replay stopped, retrying in {} ms", replayRetryMillis, e);
+        }
+    }
+
+    private void replayBatch(List<AuditEvent> batch) throws AuditSpool.RetryLaterException {
+        try {
+            writtenCounter.increment(writeBatch(batch, true));
+        } catch (CannotCreateTransactionException | DataAccessResourceFailureException
+                 | TransientDataAccessException | RecoverableDataAccessException e) {
+            // The database is unavailable; not a reason to quarantine the batch
+            throw new AuditSpool.RetryLaterException(e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        writerThread.join(shutdownTimeoutMillis);
+        if (writerThread.isAlive()) {
+            // Wakes it from polling; it writes the batch in hand and exits
+            writerThread.interrupt();
+            writerThread.join(shutdownTimeoutMillis);
+        }
+        if (writerThread.isAlive()) {
+            // Still inside a write; spilling or closing the spool now would race with it
+            logger.error("Audit writer did not stop within {} ms, {} events left in the queue",
+                    2 * shutdownTimeoutMillis, queue.size());
+            return;
+        }
+        List<AuditEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            logger.warn("Audit writer did not drain within {} ms, spooling {} events", shutdownTimeoutMillis, remaining.size());
+            spill(remaining);
+        }
+
+        spooling = false;
+        spoolerThread.join(shutdownTimeoutMillis);
+        if (spoolerThread.isAlive()) {
+            logger.error("Audit spooler did not stop within {} ms, {} events not spooled",
+                    shutdownTimeoutMillis, spillQueue.size());
+            return;
+        }
+        try {
+            spool.close();
+        } catch (IOException e) {
+            logger.warn("Could not close audit spool", e);
+        }
+    }
+}
@@ -6,13 +6,21 @@ import com.userservice.entity.*;
 import com.userservice.exception.*;
 import com.userservice.repository.*;
 import com.userservice.util.*;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.security.auth.login.AccountLockedException;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,7 +34,7 @@ public class AuthService {
     private UserSessionRepository sessionRepository;
 
     @Autowired
-    private PermissionRepository permissionRepository;
+    private SessionStore sessionStore;
 
     @Autowired
     private AuditService auditService;
@@ -34,15 +42,34 @@ public class AuthService {
     @Autowired
     private PasswordUtil passwordUtil;
 
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private AuthorizationSnapshotService authorizationSnapshotService;
+
+    @Autowired
+    private EffectivePermissionCache effectivePermissionCache;
+
+    @Autowired
+    private PermissionCatalog permissionCatalog;
+
     @Autowired
     private JwtUtil jwtUtil;
 
     public LoginResponse authenticateUser(UserLoginRequest request, String ipAddress, String userAgent) throws AccountLockedException {
-        User user = userRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new InvalidCredentialsException("Invalid email or password",
-                        request.getEmail(), "USER_NOT_FOUND"));
+        // Reject throttled clients before any database or BCrypt work
+        loginThrottle.checkAllowed(ipAddress, request.getEmail());
+
+        User user = userRepository.findByEmail(request.getEmail()).orElse(null);
+        if (user == null) {
+            loginThrottle.recordFailure(ipAddress, request.getEmail());
+            throw new InvalidCredentialsException("Invalid email or password",
+                    request.getEmail(), "USER_NOT_FOUND");
+        }
 
         if (!passwordUtil.matches(request.getPassword(), user.getPassword())) {
+            loginThrottle.recordFailure(ipAddress, request.getEmail());
             auditService.logAction(user, "LOGIN_FAILED", "AUTH",
                     ipAddress, AuditLog.ActionStatus.FAILED);
             throw new InvalidCredentialsException("Invalid email or password",
@@ -55,8 +82,21 @@ public class AuthService {
             throw new AccountLockedException();
         }
 
-        // Generate JWT token
-        String token = jwtUtil.generateToken(user.getEmail());
+        loginThrottle.recordSuccess(request.getEmail());
+
+        // Migrate hashes made with an older work factor while the raw password is at hand
+        if (passwordUtil.needsRehash(user.getPassword())) {
+            user.setPassword(passwordUtil.rehashPassword(request.getPassword()));
+            userRepository.save(user);
+        }
+
+        // Get user permissions and roles from the effective-permission cache
+        BitSet permissions = effectivePermissionCache.getEffectivePermissions(user.getId());
+        List<String> permissionNames = permissionCatalog.namesOf(permissions);
+        List<String> roles = effectivePermissionCache.getRoleNames(user.getId());
+
+        // Generate JWT token carrying the authorization snapshot
+        String token = authorizationSnapshotService.generateAccessToken(user, roles, permissions);
         String refreshToken = jwtUtil.generateRefreshToken(user.getEmail());
 
         // Create session
@@ -66,18 +106,7 @@ public class AuthService {
         session.setExpiresAt(LocalDateTime.now().plusDays(1));
         session.setIpAddress(ipAddress);
         session.setUserAgent(userAgent);
-        sessionRepository.save(session);
-
-        // Get user permissions
-        List<Permission> permissions = permissionRepository.findPermissionsByUserId(user.getId());
-        List<String> permissionNames = permissions.stream()
-                .map(Permission::getName)
-                .collect(Collectors.toList());
-
-        // Get user roles
-        List<String> roles = user.getUserRoles().stream()
-                .map(ur -> ur.getRole().getName())
-                .collect(Collectors.toList());
+        sessionStore.save(session);
 
         auditService.logAction(user, "LOGIN_SUCCESS", "AUTH",
                 ipAddress, AuditLog.ActionStatus.SUCCESS);
@@ -95,11 +124,10 @@ public class AuthService {
     }
 
     public void logout(String token, String ipAddress) {
-        UserSession session = sessionRepository.findByToken(token)
+        UserSession session = findSession(token)
                 .orElseThrow(() -> new SessionNotFoundException("Invalid session token", token));
 
-        session.setIsActive(false);
-        sessionRepository.save(session);
+        sessionStore.deactivate(session);
 
         auditService.logAction(session.getUser(), "LOGOUT", "AUTH",
                 ipAddress, AuditLog.ActionStatus.SUCCESS);
@@ -109,7 +137,7 @@ public class AuthService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("User not found", userId.toString()));
 
-        sessionRepository.deactivateAllUserSessions(userId);
+        sessionStore.deactivateAllUserSessions(userId);
 
         auditService.logAction(user, "LOGOUT_ALL", "AUTH",
                 ipAddress, AuditLog.ActionStatus.SUCCESS);
@@ -124,25 +152,20 @@ public class AuthService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UserNotFoundException("User not found for token", email));
 
-        String newToken = jwtUtil.generateToken(email);
-        String newRefreshToken = jwtUtil.generateRefreshToken(email);
-
-        // Update session
-        UserSession session = sessionRepository.findByToken(refreshToken).orElse(null);
-        if (session != null) {
-            session.setToken(newToken);
-            session.setExpiresAt(LocalDateTime.now().plusDays(1));
-            sessionRepository.save(session);
-        }
+        List<String> roles = effectivePermissionCache.getRoleNames(user.getId());
+        BitSet permissions = effectivePermissionCache.getEffectivePermissions(user.getId());
+        List<String> permissionNames = permissionCatalog.namesOf(permissions);
 
-        List<String> roles = user.getUserRoles().stream()
-                .map(ur -> ur.getRole().getName())
-                .collect(Collectors.toList());
+        String newToken = authorizationSnapshotService.generateAccessToken(user, roles, permissions);
+        String newRefreshToken = jwtUtil.generateRefreshToken(email);
 
-        List<Permission> permissions = permissionRepository.findPermissionsByUserId(user.getId());
-        List<String> permissionNames = permissions.stream()
-                .map(Permission::getName)
-                .collect(Collectors.toList());
+        // Sessions are keyed by access token, so the new access token gets its own session
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setToken(newToken);
+        session.setExpiresAt(LocalDateTime.now().plusDays(1));
+        session.setIpAddress(ipAddress);
+        sessionStore.save(session);
 
         auditService.logAction(user, "TOKEN_REFRESHED", "AUTH",
                 ipAddress, AuditLog.ActionStatus.SUCCESS);
@@ -163,6 +186,67 @@ public class AuthService {
         return jwtUtil.validateToken(token);
     }
 
+    @Transactional(readOnly = true)
+    public List<TokenIntrospectionResponse> introspectTokens(List<String> tokens) {
+        // Each token is verified once; the session keys from that pass feed a single revocation lookup
+        List<TokenIntrospectionResponse> results = new ArrayList<>(tokens.size());
+        Map<Integer, String> sessionKeys = new HashMap<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            TokenIntrospectionResponse result = new TokenIntrospectionResponse();
+            result.setIndex(i);
+            String sessionKey = introspectToken(tokens.get(i), result);
+            if (sessionKey != null) {
+                sessionKeys.put(i, sessionKey);
+            }
+            results.add(result);
+        }
+        if (sessionKeys.isEmpty()) {
+            return results;
+        }
+
+        Map<String, UserSession> sessions = new HashMap<>();
+        for (UserSession session : sessionRepository.findByTokenHashIn(Set.copyOf(sessionKeys.values()))) {
+            sessions.put(session.getTokenHash(), session);
+        }
+
+        // A token without a live session is inactive, the same as the request filter treats it
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<Integer, String> entry : sessionKeys.entrySet()) {
+            TokenIntrospectionResponse result = results.get(entry.getKey());
+            UserSession session = sessions.get(entry.getValue());
+            if (session == null) {
+                result.setActive(false);
+                result.setError("SESSION_NOT_FOUND");
+                continue;
+            }
+            boolean revoked = !Boolean.TRUE.equals(session.getIsActive());
+            result.setRevoked(revoked);
+            result.setActive(!revoked && session.getExpiresAt().isAfter(now));
+        }
+        return results;
+    }
+
+    // Fills in the token's own state and returns its session key, or null when the token is not a valid access token
+    private String introspectToken(String token, TokenIntrospectionResponse result) {
+        try {
+            Claims claims = jwtUtil.verify(token);
+            if (!jwtUtil.isAccessToken(claims)) {
+                result.setActive(false);
+                result.setError("INVALID_TOKEN_TYPE");
+                return null;
+            }
+            String sessionKey = authorizationSnapshotService.sessionKeyOf(token, claims).toHex();
+            result.setActive(true);
+            result.setSubject(claims.getSubject());
+            result.setExpiresAt(LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault()));
+            return sessionKey;
+        } catch (Exception e) {
+            result.setActive(false);
+            result.setError("INVALID_TOKEN");
+            return null;
+        }
+    }
+
     public UserResponse getCurrentUser(String token) {
         if (!jwtUtil.validateToken(token)) {
             throw new InvalidCredentialsException("Invalid token", null, "INVALID_TOKEN");
@@ -201,13 +285,23 @@ public class AuthService {
     }
 
     public void invalidateUserSession(String token, String ipAddress) {
-        UserSession session = sessionRepository.findByToken(token)
+        UserSession session = findSession(token)
                 .orElseThrow(() -> new SessionNotFoundException("Session not found", token));
 
-        session.setIsActive(false);
-        sessionRepository.save(session);
+        sessionStore.deactivate(session);
 
         auditService.logAction(session.getUser(), "SESSION_INVALIDATED", "AUTH",
                 ipAddress, AuditLog.ActionStatus.SUCCESS);
     }
+
+    // Re-issued tokens name their session in the sid claim; unverifiable tokens are looked up as they are
+    private Optional<UserSession> findSession(String token) {
+        TokenDigest sessionKey;
+        try {
+            sessionKey = authorizationSnapshotService.sessionKeyOf(token, jwtUtil.verify(token));
+        } catch (RuntimeException e) {
+            sessionKey = TokenDigest.of(token);
+        }
+        return sessionStore.findBySessionKey(sessionKey);
+    }
 }
\ No newline at end of file
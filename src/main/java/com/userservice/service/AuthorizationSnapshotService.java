@@ -0,0 +1,168 @@
+// AuthorizationSnapshotService.java
+package com.userservice.service;
+
+import com.userservice.entity.User;
+import com.userservice.util.JwtUtil;
+import com.userservice.util.PermissionBits;
+import com.userservice.util.TokenDigest;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Embeds a roles/permissions snapshot in access tokens so requests can be
+ * authorized from the token alone. Permissions travel as a bitset over the
+ * {@link PermissionCatalog} bit positions, tagged with the catalog version
+ * that produced them. A token from an older catalog is re-issued at most
+ * once per catalog version; the replacement names the original session in
+ * its sid claim, so the session is never re-keyed.
+ */
+@Service
+@Transactional
+public class AuthorizationSnapshotService {
+
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_PERMISSIONS = "perms";
+    public static final String CLAIM_CATALOG_VERSION = "pcv";
+    public static final String CLAIM_SESSION = "sid";
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthorizationSnapshotService.class);
+
+    @Autowired
+    private PermissionCatalog permissionCatalog;
+
+    @Autowired
+    private EffectivePermissionCache effectivePermissionCache;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Value("${permission.reissue.cache-size:10000}")
+    private int reissueCacheSize;
+
+    // Replacement per presented token, so a client that ignores X-Refreshed-Token is not re-signed every request
+    private final ConcurrentHashMap<TokenDigest, Reissued> reissued = new ConcurrentHashMap<>();
+
+    public String generateAccessToken(User user, List<String> roles, BitSet permissions) {
+        return jwtUtil.generateToken(user.getEmail(), snapshotClaims(user.getId(), roles, permissions));
+    }
+
+    public Map<String, Object> snapshotClaims(Long userId, List<String> roles, BitSet permissions) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, userId);
+        claims.put(CLAIM_ROLES, roles);
+        claims.put(CLAIM_PERMISSIONS, PermissionBits.encode(permissions));
+        claims.put(CLAIM_CATALOG_VERSION, permissionCatalog.getVersion());
+        return claims;
+    }
+
+    public boolean hasSnapshot(Claims claims) {
+        return claims.get(CLAIM_CATALOG_VERSION) != null && claims.get(CLAIM_USER_ID) != null;
+    }
+
+    // Only older versions are stale, so instances that have not reloaded yet leave newer tokens alone
+    public boolean isStale(Claims claims) {
+        return hasSnapshot(claims) && catalogVersionOf(claims) < permissionCatalog.getVersion();
+    }
+
+    /**
+     * Digest the token's session is stored under: the sid claim of a
+     * re-issued token, otherwise the token itself.
+     */
+    public TokenDigest sessionKeyOf(String token, Claims claims) {
+        String sessionKey = claims.get(CLAIM_SESSION, String.class);
+        return sessionKey != null ? TokenDigest.fromHex(sessionKey) : TokenDigest.of(token);
+    }
+
+    public BitSet permissionsOf(Claims claims) {
+        return PermissionBits.decode(claims.get(CLAIM_PERMISSIONS, String.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<String> rolesOf(Claims claims) {
+        Object roles = claims.get(CLAIM_ROLES);
+        return roles instanceof List ? (List<String>) roles : List.of();
+    }
+
+    public Long userIdOf(Claims claims) {
+        Object userId = claims.get(CLAIM_USER_ID);
+        return userId instanceof Number ? ((Number) userId).longValue() : null;
+    }
+
+    /**
+     * Issues a replacement for a token whose snapshot was built against an
+     * older permission catalog. The new token keeps the original expiry and
+     * session. Repeat calls for the same token return the same replacement
+     * until the catalog changes again.
+     */
+    public String reissue(String token, Claims claims) {
+        TokenDigest digest = TokenDigest.of(token);
+        int version = permissionCatalog.getVersion();
+        Reissued previous = reissued.get(digest);
+        if (previous != null && previous.catalogVersion >= version) {
+            return previous.token;
+        }
+
+        Long userId = userIdOf(claims);
+        Map<String, Object> snapshot = snapshotClaims(userId, effectivePermissionCache.getRoleNames(userId),
+                effectivePermissionCache.getEffectivePermissions(userId));
+        snapshot.put(CLAIM_SESSION, sessionKeyOf(token, claims).toHex());
+        String refreshed = jwtUtil.generateToken(claims.getSubject(), snapshot, claims.getExpiration());
+
+        if (reissued.size() >= reissueCacheSize) {
+            evictReissued();
+        }
+        reissued.put(digest, new Reissued(refreshed, version, claims.getExpiration().getTime()));
+
+        logger.debug("Re-issued access token for user {} against permission catalog {}", userId, version);
+        return refreshed;
+    }
+
+    @Scheduled(fixedDelayString = "${permission.reissue.eviction-interval:60000}")
+    public void evictExpiredReissues() {
+        long now = System.currentTimeMillis();
+        reissued.values().removeIf(entry -> entry.expiresAt <= now);
+    }
+
+    // Expired entries first, then roughly a tenth of the rest to keep the map bounded
+    private void evictReissued() {
+        evictExpiredReissues();
+        int toEvict = reissued.size() - reissueCacheSize + Math.max(1, reissueCacheSize / 10);
+        Iterator<TokenDigest> it = reissued.keySet().iterator();
+        while (toEvict-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    // Tokens from before stable bit positions carry a string version and are always re-issued
+    private static int catalogVersionOf(Claims claims) {
+        Object version = claims.get(CLAIM_CATALOG_VERSION);
+        return version instanceof Number ? ((Number) version).intValue() : -1;
+    }
+
+    private static final class Reissued {
+        private final String token;
+        private final int catalogVersion;
+        private final long expiresAt;
+
+        private Reissued(String token, int catalogVersion, long expiresAt) {
+            this.token = token;
+            this.catalogVersion = catalogVersion;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
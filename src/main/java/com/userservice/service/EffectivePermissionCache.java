@@ -0,0 +1,266 @@
+// EffectivePermissionCache.java
+package com.userservice.service;
+
+import com.userservice.entity.Role;
+import com.userservice.repository.RolePermissionRepository;
+import com.userservice.repository.RoleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches each user's effective permissions as a bitset over the
+ * {@link PermissionCatalog}. Role assignment changes bump the user's epoch
+ * and role permission changes bump the role's epoch; entries remember the
+ * epochs they were built from and are rebuilt on next access once either
+ * moves. Epochs are read before loading, so a load that overlaps a commit
+ * can never put back an entry that looks current. Returned bitsets are
+ * shared and must not be modified.
+ */
+@Service
+public class EffectivePermissionCache {
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private RolePermissionRepository rolePermissionRepository;
+
+    @Autowired
+    private PermissionCatalog permissionCatalog;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${permission.cache.max-users:100000}")
+    private int maxUsers;
+
+    @Value("${permission.cache.ttl:300000}")
+    private long ttlMillis;
+
+    private final ConcurrentHashMap<Long, AtomicLong> roleEpochs = new ConcurrentHashMap<>();
+    // Only users invalidated within the last TTL have an entry; absent means epoch 0
+    private final ConcurrentHashMap<Long, UserEpoch> userEpochs = new ConcurrentHashMap<>();
+    private final AtomicLong userEpochSequence = new AtomicLong();
+    private final ConcurrentHashMap<Long, RoleEntry> roles = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, UserEntry> users = new ConcurrentHashMap<>();
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    void registerMetrics() {
+        hits = Counter.builder("permission.cache.hits").register(meterRegistry);
+        misses = Counter.builder("permission.cache.misses").register(meterRegistry);
+        evictions = Counter.builder("permission.cache.evictions").register(meterRegistry);
+        Gauge.builder("permission.cache.users", users, ConcurrentHashMap::size).register(meterRegistry);
+        Gauge.builder("permission.cache.roles", roles, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    public BitSet getEffectivePermissions(Long userId) {
+        return resolve(userId).permissions;
+    }
+
+    public List<String> getRoleNames(Long userId) {
+        return resolve(userId).roleNames;
+    }
+
+    public void invalidateUser(Long userId) {
+        bumpUserEpoch(userId);
+        afterCommit(() -> bumpUserEpoch(userId));
+    }
+
+    public void invalidateRole(Long roleId) {
+        bumpEpoch(roleId);
+        afterCommit(() -> bumpEpoch(roleId));
+    }
+
+    public void invalidateAll() {
+        users.clear();
+        roles.clear();
+    }
+
+    // An epoch older than the TTL can go: every entry loaded before its bump has expired by then
+    @Scheduled(fixedDelayString = "${permission.cache.ttl:300000}")
+    public void expireUserEpochs() {
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        userEpochs.values().removeIf(epoch -> epoch.bumpedAt < cutoff);
+    }
+
+    private UserEntry resolve(Long userId) {
+        long now = System.currentTimeMillis();
+        UserEntry entry = users.get(userId);
+        if (entry != null && isCurrent(userId, entry, now)) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+
+        // Read before loading, so an invalidation committed mid-load leaves this entry stale
+        long userEpoch = userEpochOf(userId);
+        int catalogVersion = permissionCatalog.getVersion();
+        List<Role> userRoles = roleRepository.findRolesByUserId(userId);
+        long[] roleIds = new long[userRoles.size()];
+        long[] epochs = new long[userRoles.size()];
+        List<String> roleNames = new ArrayList<>(userRoles.size());
+        BitSet permissions = new BitSet(permissionCatalog.size());
+        for (int i = 0; i < userRoles.size(); i++) {
+            Role role = userRoles.get(i);
+            RoleEntry roleEntry = resolveRole(role.getId(), now);
+            roleIds[i] = role.getId();
+            epochs[i] = roleEntry.epoch;
+            roleNames.add(role.getName());
+            permissions.or(roleEntry.permissions);
+        }
+
+        UserEntry loaded = new UserEntry(userEpoch, roleIds, epochs, permissions, List.copyOf(roleNames),
+                catalogVersion, now);
+        if (userEpochOf(userId) != userEpoch) {
+            // Invalidated while loading; serve this result once but do not cache it
+            return loaded;
+        }
+        if (users.size() >= maxUsers) {
+            evictSome();
+        }
+        users.put(userId, loaded);
+        return loaded;
+    }
+
+    private RoleEntry resolveRole(Long roleId, long now) {
+        long epoch = epochOf(roleId);
+        RoleEntry entry = roles.get(roleId);
+        if (entry != null && entry.epoch == epoch
+                && entry.catalogVersion == permissionCatalog.getVersion()
+                && now - entry.loadedAt < ttlMillis) {
+            return entry;
+        }
+        // Epoch and version are read before loading, so a change committed mid-load invalidates this entry
+        int catalogVersion = permissionCatalog.getVersion();
+        BitSet bits = new BitSet(permissionCatalog.size());
+        for (Long permissionId : rolePermissionRepository.findPermissionIdsByRoleId(roleId)) {
+            int index = permissionCatalog.indexOf(permissionId);
+            if (index >= 0) {
+                bits.set(index);
+            }
+        }
+        RoleEntry loaded = new RoleEntry(bits, epoch, catalogVersion, now);
+        roles.put(roleId, loaded);
+        return loaded;
+    }
+
+    private boolean isCurrent(Long userId, UserEntry entry, long now) {
+        if (now - entry.loadedAt >= ttlMillis || entry.catalogVersion != permissionCatalog.getVersion()
+                || entry.userEpoch != userEpochOf(userId)) {
+            return false;
+        }
+        for (int i = 0; i < entry.roleIds.length; i++) {
+            if (epochOf(entry.roleIds[i]) != entry.roleEpochs[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long epochOf(long roleId) {
+        AtomicLong epoch = roleEpochs.get(roleId);
+        return epoch != null ? epoch.get() : 0L;
+    }
+
+    private long userEpochOf(Long userId) {
+        UserEpoch epoch = userEpochs.get(userId);
+        return epoch != null ? epoch.value : 0L;
+    }
+
+    private void bumpUserEpoch(Long userId) {
+        userEpochs.put(userId, new UserEpoch(userEpochSequence.incrementAndGet(), System.currentTimeMillis()));
+        users.remove(userId);
+    }
+
+    private void bumpEpoch(Long roleId) {
+        roleEpochs.computeIfAbsent(roleId, id -> new AtomicLong()).incrementAndGet();
+        roles.remove(roleId);
+    }
+
+    // Drops roughly a tenth of the entries; cheap and good enough to keep the map bounded
+    private void evictSome() {
+        int toEvict = Math.max(1, maxUsers / 10);
+        Iterator<Long> it = users.keySet().iterator();
+        while (toEvict-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        // Repeat the invalidation once the change is visible, so readers cannot re-cache the old graph
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private static final class RoleEntry {
+        private final BitSet permissions;
+        private final long epoch;
+        private final int catalogVersion;
+        private final long loadedAt;
+
+        private RoleEntry(BitSet permissions, long epoch, int catalogVersion, long loadedAt) {
+            this.permissions = permissions;
+            this.epoch = epoch;
+            this.catalogVersion = catalogVersion;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static final class UserEpoch {
+        private final long value;
+        private final long bumpedAt;
+
+        private UserEpoch(long value, long bumpedAt) {
+            this.value = value;
+            this.bumpedAt = bumpedAt;
+        }
+    }
+
+    private static final class UserEntry {
+        private final long userEpoch;
+        private final long[] roleIds;
+        private final long[] roleEpochs;
+        private final BitSet permissions;
+        private final List<String> roleNames;
+        private final int catalogVersion;
+        private final long loadedAt;
+
+        private UserEntry(long userEpoch, long[] roleIds, long[] roleEpochs, BitSet permissions,
+                          List<String> roleNames, int catalogVersion, long loadedAt) {
+            this.userEpoch = userEpoch;
+            this.roleIds = roleIds;
+            this.roleEpochs = roleEpochs;
+            this.permissions = permissions;
+            this.roleNames = roleNames;
+            this.catalogVersion = catalogVersion;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+// LoginThrottle.java
+package com.userservice.service;
+
+import com.userservice.exception.TooManyRequestsException;
+import com.userservice.util.SlidingWindowCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory failed-login throttle keyed by client IP and by email. Checked
+ * before the user lookup and the BCrypt comparison, so abusive clients are
+ * turned away without touching the database or the hashing pool.
+ */
+@Service
+public class LoginThrottle {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginThrottle.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${login.throttle.enabled:true}")
+    private boolean enabled;
+
+    @Value("${login.throttle.window:900000}")
+    private long windowMillis;
+
+    @Value("${login.throttle.buckets:15}")
+    private int buckets;
+
+    @Value("${login.throttle.max-failures-per-ip:20}")
+    private long maxFailuresPerIp;
+
+    @Value("${login.throttle.max-failures-per-email:5}")
+    private long maxFailuresPerEmail;
+
+    @Value("${login.throttle.max-tracked-keys:100000}")
+    private int maxTrackedKeys;
+
+    private final ConcurrentHashMap<String, SlidingWindowCounter> ipFailures = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SlidingWindowCounter> emailFailures = new ConcurrentHashMap<>();
+
+    private Counter ipRejections;
+    private Counter emailRejections;
+
+    @PostConstruct
+    void registerMetrics() {
+        ipRejections = Counter.builder("login.throttle.rejected").tag("key", "ip").register(meterRegistry);
+        emailRejections = Counter.builder("login.throttle.rejected").tag("key", "email").register(meterRegistry);
+        Gauge.builder("login.throttle.tracked", ipFailures, ConcurrentHashMap::size).tag("key", "ip")
+                .register(meterRegistry);
+        Gauge.builder("login.throttle.tracked", emailFailures, ConcurrentHashMap::size).tag("key", "email")
+                .register(meterRegistry);
+    }
+
+    public void checkAllowed(String ipAddress, String email) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (exceeds(ipFailures, ipAddress, maxFailuresPerIp, now)) {
+            ipRejections.increment();
+            throw new TooManyRequestsException("Too many failed login attempts from this address", retryAfterSeconds());
+        }
+        if (exceeds(emailFailures, normalize(email), maxFailuresPerEmail, now)) {
+            emailRejections.increment();
+            throw new TooManyRequestsException("Too many failed login attempts for this account", retryAfterSeconds());
+        }
+    }
+
+    public void recordFailure(String ipAddress, String email) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        increment(ipFailures, ipAddress, now);
+        increment(emailFailures, normalize(email), now);
+    }
+
+    public void recordSuccess(String email) {
+        if (email != null) {
+            emailFailures.remove(normalize(email));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${login.throttle.window:900000}")
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        ipFailures.values().removeIf(counter -> counter.isIdle(now));
+        emailFailures.values().removeIf(counter -> counter.isIdle(now));
+    }
+
+    private boolean exceeds(ConcurrentHashMap<String, SlidingWindowCounter> failures, String key,
+                            long limit, long now) {
+        if (key == null) {
+            return false;
+        }
+        SlidingWindowCounter counter = failures.get(key);
+        return counter != null && counter.count(now) >= limit;
+    }
+
+    private void increment(ConcurrentHashMap<String, SlidingWindowCounter> failures, String key, long now) {
+        if (key == null) {
+            return;
+        }
+        SlidingWindowCounter counter = failures.get(key);
+        if (counter == null) {
+            if (failures.size() >= maxTrackedKeys) {
+                // Bound memory under key-spraying; idle keys are reclaimed by evictIdle
+                logger.debug("Login throttle is tracking {} keys, not tracking {}", failures.size(), key);
+                return;
+            }
+            counter = failures.computeIfAbsent(key, k -> new SlidingWindowCounter(windowMillis, buckets));
+        }
+        counter.incrementAndGet(now);
+    }
+
+    private long retryAfterSeconds() {
+        return Math.max(1, windowMillis / buckets / 1000);
+    }
+
+    private static String normalize(String email) {
+        return email != null ? email.trim().toLowerCase(Locale.ROOT) : null;
+    }
+}
@@ -0,0 +1,180 @@
+// PermissionCatalog.java
+package com.userservice.service;
+
+import com.userservice.entity.Permission;
+import com.userservice.repository.PermissionRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps permissions to their bit positions in token bitsets. Positions come
+ * from the permissions.bit_index column, assigned once when a permission is
+ * created and never reused, so every instance agrees on them and deleting a
+ * permission never shifts another. The catalog version lives in the
+ * permission_catalog_version table and is raised in the same transaction as
+ * every permission creation, grant and revoke, so tokens snapshotted before
+ * the change become stale on every instance once it reloads. It only grows,
+ * so instances that reload at different times never disagree about which of
+ * two versions is newer.
+ */
+@Service
+public class PermissionCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(PermissionCatalog.class);
+
+    @Autowired
+    private PermissionRepository permissionRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(List.of(), 0);
+
+    @PostConstruct
+    void init() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${permission.catalog.refresh-interval:60000}",
+            initialDelayString = "${permission.catalog.refresh-interval:60000}")
+    public void refresh() {
+        reload();
+    }
+
+    public synchronized void reload() {
+        Snapshot next = new Snapshot(permissionRepository.findAll(), permissionRepository.currentCatalogVersion());
+        if (next.version != snapshot.version) {
+            logger.info("Permission catalog loaded: {} permissions, version {}", next.byId.size(), next.version);
+        }
+        this.snapshot = next;
+    }
+
+    /**
+     * Reloads once the current transaction commits, so the new permission is
+     * visible to the reload; immediately when there is no transaction.
+     */
+    public void reloadAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload();
+                }
+            });
+        } else {
+            reload();
+        }
+    }
+
+    /**
+     * Raises the catalog version within the current transaction, for any
+     * change to which permissions a user holds; this instance reloads once it
+     * commits, the others on their next refresh.
+     */
+    public void bumpVersion() {
+        permissionRepository.incrementCatalogVersion();
+        reloadAfterCommit();
+    }
+
+    // Position for a permission about to be created
+    public int nextBitIndex() {
+        return permissionRepository.nextBitIndex();
+    }
+
+    public int getVersion() {
+        return snapshot.version;
+    }
+
+    public int size() {
+        return snapshot.names.length;
+    }
+
+    public int indexOf(Long permissionId) {
+        Integer index = snapshot.byId.get(permissionId);
+        return index != null ? index : -1;
+    }
+
+    public int indexOfName(String name) {
+        Integer index = snapshot.byName.get(name);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Case-insensitive lookup by resource and action; does not allocate.
+     */
+    public int indexOf(String resource, String action) {
+        TreeMap<String, Integer> actions = snapshot.byResourceAction.get(resource);
+        if (actions == null) {
+            return -1;
+        }
+        Integer index = actions.get(action);
+        return index != null ? index : -1;
+    }
+
+    public String nameAt(int index) {
+        String[] names = snapshot.names;
+        return index >= 0 && index < names.length ? names[index] : null;
+    }
+
+    public BitSet toBitSet(Collection<Permission> permissions) {
+        BitSet bits = new BitSet(size());
+        for (Permission permission : permissions) {
+            int index = indexOf(permission.getId());
+            if (index >= 0) {
+                bits.set(index);
+            }
+        }
+        return bits;
+    }
+
+    public List<String> namesOf(BitSet bits) {
+        String[] names = snapshot.names;
+        return bits.stream()
+                .filter(index -> index < names.length && names[index] != null)
+                .mapToObj(index -> names[index])
+                .toList();
+    }
+
+    private static final class Snapshot {
+        private final int version;
+        // Indexed by bit position; null where a permission was deleted
+        private final String[] names;
+        private final Map<Long, Integer> byId = new HashMap<>();
+        private final Map<String, Integer> byName = new HashMap<>();
+        private final TreeMap<String, TreeMap<String, Integer>> byResourceAction =
+                new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        private Snapshot(List<Permission> permissions, int version) {
+            int maxIndex = -1;
+            for (Permission permission : permissions) {
+                if (permission.getBitIndex() != null) {
+                    maxIndex = Math.max(maxIndex, permission.getBitIndex());
+                }
+            }
+            this.version = version;
+            this.names = new String[maxIndex + 1];
+            for (Permission permission : permissions) {
+                Integer index = permission.getBitIndex();
+                if (index == null) {
+                    continue;
+                }
+                names[index] = permission.getName();
+                byId.put(permission.getId(), index);
+                byName.put(permission.getName(), index);
+                byResourceAction
+                        .computeIfAbsent(permission.getResource(), r -> new TreeMap<>(String.CASE_INSENSITIVE_ORDER))
+                        .put(permission.getAction(), index);
+            }
+        }
+    }
+}
@@ -29,6 +29,12 @@ public class RoleService {
     @Autowired
     private RolePermissionRepository rolePermissionRepository;
 
+    @Autowired
+    private PermissionCatalog permissionCatalog;
+
+    @Autowired
+    private EffectivePermissionCache effectivePermissionCache;
+
     public List<RoleResponse> getAllRoles() {
         List<Role> roles = roleRepository.findAll();
         return roles.stream()
@@ -78,6 +84,9 @@ public class RoleService {
         role.setDescription(request.getDescription());
 
         Role updatedRole = roleRepository.save(role);
+        effectivePermissionCache.invalidateRole(roleId);
+        // Role names travel in the token snapshot too
+        permissionCatalog.bumpVersion();
         return convertToRoleResponse(updatedRole);
     }
 
@@ -92,6 +101,8 @@ public class RoleService {
         }
 
         roleRepository.delete(role);
+        effectivePermissionCache.invalidateRole(roleId);
+        permissionCatalog.bumpVersion();
     }
 
     public List<RoleResponse> getAvailableRoles() {
@@ -130,6 +141,8 @@ public class RoleService {
 
         RolePermission rolePermission = new RolePermission(role, permission);
         rolePermissionRepository.save(rolePermission);
+        effectivePermissionCache.invalidateRole(roleId);
+        permissionCatalog.bumpVersion();
     }
 
     public void removePermissionFromRole(Long roleId, Long permissionId) {
@@ -140,6 +153,8 @@ public class RoleService {
                 .orElseThrow(() -> new PermissionNotFoundException("Permission not found", permissionId.toString(),null));
 
         rolePermissionRepository.deleteByRoleIdAndPermissionId(roleId, permissionId);
+        effectivePermissionCache.invalidateRole(roleId);
+        permissionCatalog.bumpVersion();
     }
 
     public List<Permission> getRolePermissions(Long roleId) {
@@ -159,14 +174,23 @@ public class RoleService {
         if (permissionRepository.findByName(name).isPresent()) {
             throw new ValidationException("Permission with name already exists: " + name);
         }
+        // hasPermission checks look up resource and action, so a second pair would shadow the first
+        if (permissionRepository.findByResourceAndAction(resource, action).isPresent()) {
+            throw new ValidationException("Permission already exists for " + resource + "/" + action);
+        }
 
         Permission permission = Permission.builder()
-                .name("READ_USER")
-                .resource("User")
-                .action("READ")
-                .description("Can read user data")
+                .name(name)
+                .resource(resource)
+                .action(action)
+                .description(description)
+                .bitIndex(permissionCatalog.nextBitIndex())
                 .build();
-        return permissionRepository.save(permission);
+        Permission savedPermission = permissionRepository.save(permission);
+
+        // New permission raises the catalog version, so outstanding snapshots get re-issued
+        permissionCatalog.bumpVersion();
+        return savedPermission;
     }
 
     private Long getPermissionCountForRole(Long roleId) {
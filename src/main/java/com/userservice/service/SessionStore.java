@@ -0,0 +1,229 @@
+// SessionStore.java
+package com.userservice.service;
+
+import com.userservice.entity.UserSession;
+import com.userservice.repository.UserSessionRepository;
+import com.userservice.util.OffHeapSessionTable;
+import com.userservice.util.TokenDigest;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Off-heap index of session state keyed by token digest, so the
+ * authentication filter can tell whether a token's session is still active
+ * without a database round trip. The database stays the source of truth:
+ * every write goes to it first, the table is updated only once the
+ * transaction commits, and tokens the table does not know are looked up in
+ * the indexed token_hash column and then indexed. Sessions deactivated on
+ * other instances are picked up by a periodic sync on deactivated_at, so a
+ * logout elsewhere takes effect here within the sync interval.
+ */
+@Service
+public class SessionStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionStore.class);
+
+    @Autowired
+    private UserSessionRepository sessionRepository;
+
+    @Autowired
+    private ActiveUserSketches activeUserSketches;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${session.store.capacity:1048576}")
+    private int capacity;
+
+    @Value("${session.store.segments:64}")
+    private int segments;
+
+    @Value("${session.store.sync-interval:5000}")
+    private long syncIntervalMillis;
+
+    private OffHeapSessionTable table;
+    private volatile LocalDateTime lastSync;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        this.table = new OffHeapSessionTable(capacity, segments);
+
+        Gauge.builder("session.store.size", table, OffHeapSessionTable::size)
+                .description("Sessions indexed in the off-heap session store")
+                .register(meterRegistry);
+        Gauge.builder("session.store.active", table, OffHeapSessionTable::activeCount)
+                .register(meterRegistry);
+        Gauge.builder("session.store.occupancy", table, OffHeapSessionTable::occupancy)
+                .description("Fraction of off-heap session slots in use")
+                .register(meterRegistry);
+        Gauge.builder("session.store.capacity", table, OffHeapSessionTable::capacity)
+                .register(meterRegistry);
+        Gauge.builder("session.store.bytes", table, OffHeapSessionTable::offHeapBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("session.store.hits", hits, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("session.store.misses", misses, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("session.store.rejected", rejected, AtomicLong::get)
+                .description("Sessions not indexed because their segment was full")
+                .register(meterRegistry);
+
+        logger.info("Off-heap session store allocated: {} slots, {} MB",
+                table.capacity(), table.offHeapBytes() / (1024 * 1024));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        LocalDateTime started = LocalDateTime.now();
+        long loaded = 0;
+        try (Stream<Object[]> rows = sessionRepository.streamActiveSessionKeys(started)) {
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                Long sessionId = (Long) row[0];
+                String tokenHash = (String) row[1];
+                Long userId = (Long) row[2];
+                LocalDateTime expiresAt = (LocalDateTime) row[3];
+                if (index(TokenDigest.fromHex(tokenHash), sessionId, userId, expiresAt, true)) {
+                    loaded++;
+                }
+            }
+        } catch (Exception e) {
+            // The store is only an index, so a failed warm-up just means more database fallbacks
+            logger.error("Session store warm-up failed", e);
+        }
+        lastSync = started;
+        logger.info("Session store warmed up with {} active sessions", loaded);
+    }
+
+    /**
+     * True if the session keyed by the digest exists, is active and has not
+     * expired. The off-heap lookup does not allocate; only
+     * digests the table has not seen go to the database.
+     */
+    public boolean isActive(TokenDigest digest) {
+        long now = System.currentTimeMillis();
+        long sessionId = table.findActiveSessionId(digest, now);
+        if (sessionId != OffHeapSessionTable.NOT_FOUND) {
+            hits.incrementAndGet();
+            return sessionId >= 0;
+        }
+
+        misses.incrementAndGet();
+        Optional<UserSession> session = sessionRepository.findByTokenHash(digest.toHex());
+        session.ifPresent(s -> index(digest, s.getId(), s.getUser().getId(),
+                s.getExpiresAt(), Boolean.TRUE.equals(s.getIsActive())));
+        return session.filter(s -> Boolean.TRUE.equals(s.getIsActive())
+                && s.getExpiresAt().isAfter(LocalDateTime.now())).isPresent();
+    }
+
+    public UserSession save(UserSession session) {
+        UserSession saved = sessionRepository.save(session);
+        activeUserSketches.record(saved.getUser().getId(), LocalDateTime.now());
+        TokenDigest digest = TokenDigest.fromHex(saved.getTokenHash());
+        Long sessionId = saved.getId();
+        Long userId = saved.getUser().getId();
+        LocalDateTime expiresAt = saved.getExpiresAt();
+        boolean active = Boolean.TRUE.equals(saved.getIsActive());
+        afterCommit(() -> index(digest, sessionId, userId, expiresAt, active));
+        return saved;
+    }
+
+    public Optional<UserSession> findBySessionKey(TokenDigest sessionKey) {
+        return sessionRepository.findByTokenHash(sessionKey.toHex());
+    }
+
+    public UserSession deactivate(UserSession session) {
+        session.setIsActive(false);
+        session.setDeactivatedAt(LocalDateTime.now());
+        UserSession saved = sessionRepository.save(session);
+        TokenDigest digest = TokenDigest.fromHex(saved.getTokenHash());
+        afterCommit(() -> table.markInactive(digest));
+        return saved;
+    }
+
+    public void deactivateAllUserSessions(Long userId) {
+        sessionRepository.deactivateAllUserSessions(userId, LocalDateTime.now());
+        afterCommit(() -> table.markUserInactive(userId));
+    }
+
+    // Picks up logouts and revocations committed on other instances
+    @Scheduled(fixedDelayString = "${session.store.sync-interval:5000}",
+               initialDelayString = "${session.store.sync-interval:5000}")
+    @Transactional(readOnly = true)
+    public void syncDeactivated() {
+        if (lastSync == null) {
+            return;
+        }
+        LocalDateTime started = LocalDateTime.now();
+        // Overlap the previous window so deactivations that committed late are not missed
+        LocalDateTime since = lastSync.minus(syncIntervalMillis, ChronoUnit.MILLIS);
+        try (Stream<String> tokenHashes = sessionRepository.streamTokenHashesDeactivatedSince(since)) {
+            tokenHashes.forEach(tokenHash -> table.markInactive(TokenDigest.fromHex(tokenHash)));
+            lastSync = started;
+        } catch (Exception e) {
+            logger.error("Session store sync failed", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${session.store.eviction-interval:60000}")
+    public void evictExpired() {
+        int evicted = table.evictExpired(System.currentTimeMillis());
+        if (evicted > 0) {
+            logger.debug("Evicted {} expired sessions from the session store", evicted);
+        }
+    }
+
+    public long size() {
+        return table.size();
+    }
+
+    public double occupancy() {
+        return table.occupancy();
+    }
+
+    private boolean index(TokenDigest digest, Long sessionId, Long userId, LocalDateTime expiresAt, boolean active) {
+        long expiresAtMillis = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        boolean stored = table.put(digest, sessionId, userId, expiresAtMillis, active);
+        if (!stored) {
+            rejected.incrementAndGet();
+        }
+        return stored;
+    }
+
+    // Applies a table update once the session change is committed, so a rollback never reaches the index
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
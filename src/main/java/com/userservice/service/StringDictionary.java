@@ -0,0 +1,209 @@
+// StringDictionary.java
+package com.userservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interned values for low-cardinality string columns (audit actions and
+ * resources, user agents). Rows store the small integer id from
+ * string_dictionary and an in-process cache maps both ways, so encoding on
+ * write and decoding on read rarely reach the database. Entries are never
+ * changed or deleted, which keeps cached ids valid on every instance; new
+ * values commit on their own so an id is never cached for a rolled-back row.
+ * Open-ended values such as user agents go through {@link #internBounded},
+ * which stops adding entries once the dictionary reaches its limit so the
+ * caller stores the text instead.
+ */
+@Service
+public class StringDictionary {
+
+    private static final Logger logger = LoggerFactory.getLogger(StringDictionary.class);
+
+    public static final int MAX_VALUE_LENGTH = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${string-dictionary.cache-size:100000}")
+    private int maxCacheEntries;
+
+    @Value("${string-dictionary.bounded-limit:10000}")
+    private int boundedLimit;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> values = new ConcurrentHashMap<>();
+    // Highest id this instance has seen; ids come from a sequence, so it tracks the dictionary's size
+    private final AtomicInteger highestId = new AtomicInteger();
+    private final Set<String> rejected = ConcurrentHashMap.newKeySet();
+    private TransactionTemplate insertTransaction;
+    private Counter misses;
+    private Counter boundedRejections;
+
+    @PostConstruct
+    void init() {
+        this.insertTransaction = new TransactionTemplate(transactionManager);
+        insertTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        Gauge.builder("string.dictionary.cache.size", ids, Map::size).register(meterRegistry);
+        misses = Counter.builder("string.dictionary.cache.misses")
+                .description("Dictionary lookups that went to the database")
+                .register(meterRegistry);
+        boundedRejections = Counter.builder("string.dictionary.bounded.rejected")
+                .description("Values stored as text because the dictionary reached string-dictionary.bounded-limit")
+                .register(meterRegistry);
+
+        // The whole dictionary is normally a few thousand rows; warm the cache up front
+        jdbcTemplate.query("SELECT id, value FROM string_dictionary WHERE ROWNUM <= ?",
+                rs -> {
+                    cache(rs.getString(2), rs.getInt(1));
+                },
+                maxCacheEntries);
+        highestId.accumulateAndGet(jdbcTemplate.queryForObject(
+                "SELECT NVL(MAX(id), 0) FROM string_dictionary", Integer.class), Math::max);
+        logger.info("Loaded {} dictionary strings", ids.size());
+    }
+
+    /**
+     * Id for the value, adding it to the dictionary if it is new.
+     */
+    public Integer intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String key = truncate(value);
+        Integer id = lookup(key);
+        return id != null ? id : insert(key);
+    }
+
+    /**
+     * Like {@link #intern}, but only adds new values while the dictionary
+     * holds fewer than string-dictionary.bounded-limit entries; past that,
+     * unknown values return null and the caller keeps the text. The limit is
+     * checked against this instance's view, so instances can overshoot it by
+     * the values they add concurrently.
+     */
+    public Integer internBounded(String value) {
+        if (value == null) {
+            return null;
+        }
+        String key = truncate(value);
+        if (rejected.contains(key)) {
+            boundedRejections.increment();
+            return null;
+        }
+        Integer id = lookup(key);
+        if (id != null) {
+            return id;
+        }
+        if (highestId.get() >= boundedLimit) {
+            // Remembered so a repeated value does not query the database again; storing text is always safe
+            if (rejected.size() >= maxCacheEntries) {
+                rejected.clear();
+            }
+            rejected.add(key);
+            boundedRejections.increment();
+            return null;
+        }
+        return insert(key);
+    }
+
+    /**
+     * Id for the value if it is already in the dictionary, otherwise null.
+     * Used for query parameters so searching for an unknown value does not
+     * create an entry.
+     */
+    public Integer lookup(String value) {
+        if (value == null) {
+            return null;
+        }
+        String key = truncate(value);
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id;
+        }
+        misses.increment();
+        List<Integer> rows = jdbcTemplate.queryForList(
+                "SELECT id FROM string_dictionary WHERE value = ?", Integer.class, key);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        cache(key, rows.get(0));
+        return rows.get(0);
+    }
+
+    public String decode(Integer id) {
+        if (id == null) {
+            return null;
+        }
+        String value = values.get(id);
+        if (value != null) {
+            return value;
+        }
+        misses.increment();
+        List<String> rows = jdbcTemplate.queryForList(
+                "SELECT value FROM string_dictionary WHERE id = ?", String.class, id);
+        if (rows.isEmpty()) {
+            throw new IllegalStateException("Unknown dictionary id " + id);
+        }
+        cache(rows.get(0), id);
+        return rows.get(0);
+    }
+
+    private Integer insert(String value) {
+        try {
+            Integer id = insertTransaction.execute(status -> {
+                Integer next = jdbcTemplate.queryForObject(
+                        "SELECT string_dictionary_sequence.NEXTVAL FROM dual", Integer.class);
+                jdbcTemplate.update("INSERT INTO string_dictionary (id, value) VALUES (?, ?)", next, value);
+                return next;
+            });
+            cache(value, id);
+            return id;
+        } catch (DuplicateKeyException e) {
+            // Added concurrently by another thread or instance
+            Integer id = lookup(value);
+            if (id == null) {
+                throw e;
+            }
+            return id;
+        }
+    }
+
+    // Beyond the cap values still resolve, just through the database
+    private void cache(String value, Integer id) {
+        highestId.accumulateAndGet(id, Math::max);
+        if (ids.size() < maxCacheEntries) {
+            ids.putIfAbsent(value, id);
+            values.putIfAbsent(id, value);
+        }
+    }
+
+    private static String truncate(String value) {
+        return value.length() > MAX_VALUE_LENGTH ? value.substring(0, MAX_VALUE_LENGTH) : value;
+    }
+}
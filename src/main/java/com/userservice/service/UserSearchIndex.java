@@ -0,0 +1,233 @@
+// UserSearchIndex.java
+package com.userservice.service;
+
+import com.userservice.entity.User;
+import com.userservice.repository.UserRepository;
+import com.userservice.util.TrigramIndex;
+import com.userservice.util.TrigramIndex.Hit;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * In-memory trigram index over username, email, first and last name, so user
+ * search does not scan the users table. It is built from a streamed scan once
+ * the application is ready, updated when a registration or profile change
+ * on this instance commits, and synced periodically for changes made
+ * elsewhere. Matching, ranking and paging run in memory and only the page of
+ * users is loaded, by id. Until the first build completes, or when sorting by
+ * a property the index does not hold, callers fall back to the database.
+ */
+@Service
+public class UserSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    public static final String RELEVANCE = "relevance";
+
+    // Field order in the index: username, email, first name, last name (compared lower-cased)
+    private static final Map<String, Comparator<Hit>> SORTABLE = Map.of(
+            "id", Comparator.comparingLong(Hit::id),
+            "createdAt", Comparator.comparingLong(Hit::createdAt),
+            "username", Comparator.comparing((Hit hit) -> hit.fields()[0]),
+            "email", Comparator.comparing((Hit hit) -> hit.fields()[1]),
+            "firstName", Comparator.comparing((Hit hit) -> hit.fields()[2]),
+            "lastName", Comparator.comparing((Hit hit) -> hit.fields()[3]),
+            RELEVANCE, Comparator.comparingInt(Hit::score)
+    );
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${user.search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${user.search.index.sync-interval:30000}")
+    private long syncIntervalMillis;
+
+    private final TrigramIndex index = new TrigramIndex();
+    private volatile boolean ready;
+    private volatile LocalDateTime lastSync;
+    private Timer searchTimer;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("user.search.index.size", index, TrigramIndex::size).register(meterRegistry);
+        Gauge.builder("user.search.index.trigrams", index, TrigramIndex::trigramCount).register(meterRegistry);
+        searchTimer = Timer.builder("user.search.index.query").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void build() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime started = LocalDateTime.now();
+        try (Stream<Object[]> rows = userRepository.streamSearchFields()) {
+            long loaded = 0;
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                put(row);
+                loaded++;
+            }
+            lastSync = started;
+            ready = true;
+            logger.info("User search index built: {} users, {} trigrams", loaded, index.trigramCount());
+        } catch (Exception e) {
+            // Search keeps working against the database
+            logger.error("User search index build failed", e);
+        }
+    }
+
+    // Picks up users registered or changed on other instances
+    @Scheduled(fixedDelayString = "${user.search.index.sync-interval:30000}",
+               initialDelayString = "${user.search.index.sync-interval:30000}")
+    @Transactional(readOnly = true)
+    public void sync() {
+        if (!ready) {
+            return;
+        }
+        LocalDateTime started = LocalDateTime.now();
+        // Overlap the previous window so rows that committed late are not missed
+        LocalDateTime since = lastSync.minus(syncIntervalMillis, ChronoUnit.MILLIS);
+        try (Stream<Object[]> rows = userRepository.streamSearchFieldsChangedSince(since)) {
+            rows.forEach(this::put);
+            lastSync = started;
+        } catch (Exception e) {
+            logger.error("User search index sync failed", e);
+        }
+    }
+
+    /**
+     * Indexes the user once the current transaction commits, so a rolled-back
+     * registration or update never becomes searchable.
+     */
+    public void onUserSaved(User user) {
+        long id = user.getId();
+        long createdAt = toMillis(user.getCreatedAt() != null ? user.getCreatedAt() : LocalDateTime.now());
+        String username = user.getUsername();
+        String email = user.getEmail();
+        String firstName = user.getFirstName();
+        String lastName = user.getLastName();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    index.put(id, createdAt, username, email, firstName, lastName);
+                }
+            });
+        } else {
+            index.put(id, createdAt, username, email, firstName, lastName);
+        }
+    }
+
+    /**
+     * Ids of the requested page of users with a name, username or email
+     * containing the keyword (case-insensitive), in the pageable's order, or
+     * null when the index cannot answer and the database should be used.
+     */
+    public Page<Long> search(String keyword, Pageable pageable) {
+        if (!ready || !supports(pageable.getSort())) {
+            return null;
+        }
+        return searchTimer.record(() -> {
+            List<Hit> hits = index.search(keyword);
+            int total = hits.size();
+            int from = (int) Math.min(pageable.getOffset(), total);
+            int to = Math.min(from + pageable.getPageSize(), total);
+
+            List<Hit> top = first(hits, comparator(pageable.getSort()), to);
+            List<Long> ids = new ArrayList<>(to - from);
+            for (Hit hit : top.subList(from, to)) {
+                ids.add(hit.id());
+            }
+            return new PageImpl<>(ids, pageable, total);
+        });
+    }
+
+    public boolean supports(Sort sort) {
+        for (Sort.Order order : sort) {
+            if (!SORTABLE.containsKey(order.getProperty())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void put(Object[] row) {
+        index.put((Long) row[0], toMillis((LocalDateTime) row[5]),
+                (String) row[1], (String) row[2], (String) row[3], (String) row[4]);
+    }
+
+    private static Comparator<Hit> comparator(Sort sort) {
+        Comparator<Hit> result = null;
+        for (Sort.Order order : sort) {
+            Comparator<Hit> next = SORTABLE.get(order.getProperty());
+            next = order.isDescending() ? next.reversed() : next;
+            result = result == null ? next : result.thenComparing(next);
+        }
+        if (result == null) {
+            // Unsorted: best matches first, newest first among equals
+            result = SORTABLE.get(RELEVANCE).reversed().thenComparing(SORTABLE.get("createdAt").reversed());
+        }
+        // Ids break ties so pages stay stable between requests
+        return result.thenComparing(SORTABLE.get("id"));
+    }
+
+    // The first k hits in order; a bounded heap avoids sorting every match for early pages
+    private static List<Hit> first(List<Hit> hits, Comparator<Hit> order, int k) {
+        if (k == 0) {
+            return List.of();
+        }
+        if (k * 4L >= hits.size()) {
+            hits.sort(order);
+            return hits.subList(0, k);
+        }
+        PriorityQueue<Hit> heap = new PriorityQueue<>(k, order.reversed());
+        for (Hit hit : hits) {
+            if (heap.size() < k) {
+                heap.add(hit);
+            } else if (order.compare(hit, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(hit);
+            }
+        }
+        List<Hit> top = new ArrayList<>(heap);
+        top.sort(order);
+        return top;
+    }
+
+    private static long toMillis(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value).getTime() : 0L;
+    }
+}
@@ -9,12 +9,18 @@ import com.userservice.util.PasswordUtil;
 import jakarta.validation.ValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -36,6 +42,15 @@ public class UserService {
     @Autowired
     private PasswordUtil passwordUtil;
 
+    @Autowired
+    private EffectivePermissionCache effectivePermissionCache;
+
+    @Autowired
+    private PermissionCatalog permissionCatalog;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
     public UserResponse registerUser(UserRegistrationRequest request, String ipAddress) {
         // Check if user already exists
         if (userRepository.existsByEmail(request.getEmail())) {
@@ -55,6 +70,7 @@ public class UserService {
         user.setStatus(User.UserStatus.ACTIVE);
 
         User savedUser = userRepository.save(user);
+        userSearchIndex.onUserSaved(savedUser);
 
         // Assign default role
         Role defaultRole = roleRepository.findByName("USER")
@@ -90,6 +106,7 @@ public class UserService {
         user.setLastName(request.getLastName());
 
         User updatedUser = userRepository.save(user);
+        userSearchIndex.onUserSaved(updatedUser);
 
         auditService.logAction(user, "PROFILE_UPDATE", "USER",
                 ipAddress, AuditLog.ActionStatus.SUCCESS);
@@ -110,6 +127,8 @@ public class UserService {
 
         UserRole userRole = new UserRole(user, role, assignedBy);
         userRoleRepository.save(userRole);
+        effectivePermissionCache.invalidateUser(userId);
+        permissionCatalog.bumpVersion();
 
         auditService.logAction(user, "ROLE_ASSIGNMENT", "USER_ROLE",
                 ipAddress, AuditLog.ActionStatus.SUCCESS);
@@ -123,14 +142,38 @@ public class UserService {
                 .orElseThrow(() -> new RoleNotFoundException("Role not Found",roleId.toString()));
 
         userRoleRepository.deleteByUserIdAndRoleId(userId, roleId);
+        effectivePermissionCache.invalidateUser(userId);
+        permissionCatalog.bumpVersion();
 
         auditService.logAction(user, "ROLE_REMOVAL", "USER_ROLE",
                 ipAddress, AuditLog.ActionStatus.SUCCESS);
     }
 
+    // Answered from the in-memory index when possible; only the page of users is loaded
     public Page<UserResponse> searchUsers(String keyword, Pageable pageable) {
-        Page<User> users = userRepository.searchUsers(keyword, pageable);
-        return users.map(this::convertToUserResponse);
+        Page<Long> ids = userSearchIndex.search(keyword, pageable);
+        if (ids == null) {
+            // Index still building, or sorted by a property it does not hold
+            Page<User> users = userRepository.searchUsers(keyword, withoutRelevanceSort(pageable));
+            return users.map(this::convertToUserResponse);
+        }
+
+        Map<Long, User> users = userRepository.findAllById(ids.getContent()).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<UserResponse> content = ids.getContent().stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .map(this::convertToUserResponse)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, ids.getTotalElements());
+    }
+
+    // The database has no relevance score; newest first is the closest ordering
+    private Pageable withoutRelevanceSort(Pageable pageable) {
+        if (pageable.getSort().getOrderFor(UserSearchIndex.RELEVANCE) == null) {
+            return pageable;
+        }
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("createdAt").descending());
     }
 
     public List<UserResponse> getUsersByRole(String roleName) {
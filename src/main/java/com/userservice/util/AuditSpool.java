@@ -0,0 +1,468 @@
+package com.userservice.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.userservice.dto.AuditEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only local spool for audit events the database could not take.
+ * Events are framed as [length][CRC32][JSON] records in numbered segment
+ * files. A segment is sealed when it reaches the size limit or when the
+ * replayer wants to read it, and deleted once it has been replayed; a
+ * checkpoint file records how far replay got, so it resumes there after a
+ * restart. Delivery is at-least-once (a batch written just before a crash is
+ * offered again), which is why events carry ids. A torn record at the end of
+ * the newest segment, left by a crash mid-write, is cut off on open. A batch
+ * the sink keeps rejecting is moved aside into a quarantine file after a
+ * number of attempts, so one bad event cannot hold up replay forever.
+ */
+public class AuditSpool implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditSpool.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String QUARANTINE_PREFIX = "quarantine-";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    /**
+     * Receives replayed events in spool order. Throwing stops the replay; the
+     * batch is offered again on the next call. Failures count towards
+     * quarantining the batch unless the sink throws {@link RetryLaterException}.
+     */
+    @FunctionalInterface
+    public interface BatchSink {
+        void write(List<AuditEvent> batch) throws Exception;
+    }
+
+    /**
+     * Thrown by a sink when the failure is not the batch's fault, e.g. the
+     * database is unreachable. Such failures never quarantine a batch.
+     */
+    public static class RetryLaterException extends Exception {
+        public RetryLaterException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean fsync;
+    private final int maxReplayFailures;
+    private final ObjectMapper objectMapper;
+
+    private final ConcurrentSkipListMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    private final Object appendLock = new Object();
+    private final AtomicLong corruptRecords = new AtomicLong();
+    private final AtomicLong quarantinedRecords = new AtomicLong();
+
+    // Guarded by appendLock
+    private FileChannel active;
+    private long activeSize;
+    private long nextSegmentId;
+    private volatile long activeId = -1;
+
+    // Replay resumes at this offset when it reaches this segment; only the replaying thread writes it
+    private volatile long checkpointSegment;
+    private volatile long checkpointOffset;
+
+    // Consecutive sink failures for the batch starting at failedOffset in failedSegment; replaying thread only
+    private long failedSegment = -1;
+    private long failedOffset = -1;
+    private int failures;
+
+    public AuditSpool(Path directory, long segmentBytes, boolean fsync, int maxReplayFailures,
+                      ObjectMapper objectMapper) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        this.maxReplayFailures = Math.max(1, maxReplayFailures);
+        this.objectMapper = objectMapper;
+
+        Files.createDirectories(directory);
+        readCheckpoint();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                Long id = segmentId(path);
+                if (id == null) {
+                    logger.warn("Ignoring unexpected file in audit spool: {}", path);
+                } else if (id < checkpointSegment) {
+                    // Fully replayed; the process stopped before deleting it
+                    Files.delete(path);
+                } else {
+                    segments.put(id, path);
+                }
+            }
+        }
+        nextSegmentId = Math.max(checkpointSegment, segments.isEmpty() ? 0 : segments.lastKey()) + 1;
+        if (!segments.isEmpty()) {
+            truncateTornTail(segments.lastEntry().getValue());
+            logger.info("Audit spool {} holds {} segments ({} bytes) to replay", directory, segments.size(), pendingBytes());
+        }
+    }
+
+    /**
+     * Appends the events as one write. A failed write is cut back off and the
+     * segment sealed, so later records never sit behind a partial one.
+     */
+    public void append(List<AuditEvent> events) throws IOException {
+        ByteBuffer buffer = encode(events);
+        int total = buffer.remaining();
+
+        synchronized (appendLock) {
+            FileChannel channel = activeChannel();
+            long before = activeSize;
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+                activeSize += total;
+            } catch (IOException e) {
+                try {
+                    channel.truncate(before);
+                } catch (IOException ignored) {
+                    // The reader stops at the torn record either way
+                }
+                closeActive();
+                throw e;
+            }
+        }
+    }
+
+    public boolean hasPending() {
+        return !segments.isEmpty();
+    }
+
+    /**
+     * Replays spooled events in order, in batches of up to batchSize, and
+     * deletes each segment once all of it has been handed to the sink.
+     * Returns the number of events replayed; a sink failure is rethrown after
+     * the batches before it have been checkpointed.
+     */
+    public int replay(int batchSize, BatchSink sink) throws Exception {
+        synchronized (appendLock) {
+            // Seal the segment being appended to so replay only reads immutable files
+            if (active != null && activeSize > 0) {
+                closeActive();
+            }
+        }
+
+        int replayed = 0;
+        for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+            long id = entry.getKey();
+            if (id == activeId) {
+                break;
+            }
+            replayed += replaySegment(id, entry.getValue(), batchSize, sink);
+
+            // Checkpoint past the segment before deleting it, so a crash in between cannot replay it again
+            writeCheckpoint(id + 1, 0);
+            Files.deleteIfExists(entry.getValue());
+            segments.remove(id);
+        }
+        return replayed;
+    }
+
+    public long pendingBytes() {
+        long bytes = 0;
+        for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+            try {
+                bytes += Files.size(entry.getValue());
+                if (entry.getKey() == checkpointSegment) {
+                    bytes -= checkpointOffset;
+                }
+            } catch (IOException e) {
+                // Deleted by a concurrent replay
+            }
+        }
+        return bytes;
+    }
+
+    public long getCorruptRecords() {
+        return corruptRecords.get();
+    }
+
+    public long getQuarantinedRecords() {
+        return quarantinedRecords.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            closeActive();
+        }
+    }
+
+    private int replaySegment(long id, Path path, int batchSize, BatchSink sink) throws Exception {
+        long start = id == checkpointSegment ? checkpointOffset : 0;
+        int replayed = 0;
+        try (SegmentReader reader = new SegmentReader(path, start)) {
+            List<AuditEvent> batch = new ArrayList<>(batchSize);
+            long batchStart = start;
+            byte[] payload;
+            while ((payload = reader.next()) != null) {
+                try {
+                    batch.add(objectMapper.readValue(payload, AuditEvent.class));
+                } catch (JsonProcessingException e) {
+                    corruptRecords.incrementAndGet();
+                    logger.error("Skipping unreadable audit event in {} before offset {}", path, reader.position(), e);
+                }
+                if (batch.size() >= batchSize) {
+                    replayed += deliver(id, batchStart, batch, sink);
+                    writeCheckpoint(id, reader.position());
+                    batchStart = reader.position();
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                replayed += deliver(id, batchStart, batch, sink);
+                writeCheckpoint(id, reader.position());
+            }
+            if (!reader.atEnd()) {
+                corruptRecords.incrementAndGet();
+                logger.error("Audit spool segment {} is corrupt after offset {}; the rest of it is skipped",
+                        path, reader.position());
+            }
+        }
+        return replayed;
+    }
+
+    // Returns the number of events written; 0 if the batch was quarantined instead
+    private int deliver(long id, long offset, List<AuditEvent> batch, BatchSink sink) throws Exception {
+        try {
+            sink.write(batch);
+            failures = 0;
+            return batch.size();
+        } catch (RetryLaterException e) {
+            throw e;
+        } catch (Exception e) {
+            if (failedSegment != id || failedOffset != offset) {
+                failedSegment = id;
+                failedOffset = offset;
+                failures = 0;
+            }
+            if (++failures < maxReplayFailures) {
+                throw e;
+            }
+            failures = 0;
+            quarantine(id, offset, batch, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Moves the batch into its own file, framed like a segment, so replay can
+     * carry on. Renaming the file to a segment name puts it back in the spool.
+     */
+    private void quarantine(long id, long offset, List<AuditEvent> batch, Exception cause) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d-%020d%s", QUARANTINE_PREFIX, id, offset, SEGMENT_SUFFIX));
+        ByteBuffer buffer = encode(batch);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsync) {
+                channel.force(true);
+            }
+        }
+        quarantinedRecords.addAndGet(batch.size());
+        logger.error("Audit spool batch of {} events failed {} times; moved to {}",
+                batch.size(), maxReplayFailures, path, cause);
+    }
+
+    private ByteBuffer encode(List<AuditEvent> events) throws IOException {
+        List<byte[]> payloads = new ArrayList<>(events.size());
+        int total = 0;
+        for (AuditEvent event : events) {
+            byte[] payload = objectMapper.writeValueAsBytes(event);
+            payloads.add(payload);
+            total += HEADER_BYTES + payload.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        CRC32 crc = new CRC32();
+        for (byte[] payload : payloads) {
+            crc.reset();
+            crc.update(payload);
+            buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private FileChannel activeChannel() throws IOException {
+        if (active != null && activeSize >= segmentBytes) {
+            closeActive();
+        }
+        if (active == null) {
+            long id = nextSegmentId++;
+            Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+            active = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            activeSize = 0;
+            activeId = id;
+            segments.put(id, path);
+        }
+        return active;
+    }
+
+    private void closeActive() throws IOException {
+        if (active == null) {
+            return;
+        }
+        try {
+            active.close();
+        } finally {
+            active = null;
+            activeSize = 0;
+            activeId = -1;
+        }
+    }
+
+    private void truncateTornTail(Path path) throws IOException {
+        long validEnd;
+        long size;
+        try (SegmentReader reader = new SegmentReader(path, 0)) {
+            while (reader.next() != null) {
+                // Scan to the end of the last intact record
+            }
+            validEnd = reader.position();
+            size = reader.size;
+        }
+        if (validEnd < size) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(validEnd);
+            }
+            logger.warn("Cut {} bytes of incomplete audit record from {}", size - validEnd, path);
+        }
+    }
+
+    private void readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() == 20) {
+            long segment = buffer.getLong();
+            long offset = buffer.getLong();
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, 16);
+            if (buffer.getInt() == (int) crc.getValue()) {
+                checkpointSegment = segment;
+                checkpointOffset = offset;
+                return;
+            }
+        }
+        // Replaying from the start only repeats events, which the sink skips by id
+        logger.warn("Audit spool checkpoint {} is unreadable; replaying all segments", file);
+    }
+
+    private void writeCheckpoint(long segment, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(20);
+        buffer.putLong(segment).putLong(offset);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, 16);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsync) {
+                channel.force(true);
+            }
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE);
+        checkpointSegment = segment;
+        checkpointOffset = offset;
+    }
+
+    private static Long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Sequential reader over intact records; stops at the end of the file or the first bad record
+    private static final class SegmentReader implements Closeable {
+
+        private final FileChannel channel;
+        private final DataInputStream in;
+        private final long size;
+        private final CRC32 crc = new CRC32();
+        private long position;
+
+        SegmentReader(Path path, long offset) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.size = channel.size();
+            this.position = Math.min(offset, size);
+            channel.position(position);
+            this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 65536));
+        }
+
+        byte[] next() throws IOException {
+            if (size - position < HEADER_BYTES) {
+                return null;
+            }
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES || length > size - position - HEADER_BYTES) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                return null;
+            }
+            position += HEADER_BYTES + length;
+            return payload;
+        }
+
+        long position() {
+            return position;
+        }
+
+        boolean atEnd() {
+            return position == size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.userservice.util;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chooses the fleet-wide BCrypt work factor. password.bcrypt.strength fixes
+ * it; set to 0, the cost is calibrated on this host against target-millis.
+ * Either way it stays between password.bcrypt.min-strength and max-strength,
+ * and min-strength itself can never go below {@link #ABSOLUTE_MIN_STRENGTH}.
+ * Stored hashes with any other cost are re-hashed on the next login, so a
+ * calibrated cost is only suitable when every instance runs on the same
+ * hardware; mixed fleets should pin the strength.
+ */
+@Component
+public class BCryptCalibrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BCryptCalibrator.class);
+
+    // Security-reviewed floor; no configuration can select a cheaper cost
+    public static final int ABSOLUTE_MIN_STRENGTH = 10;
+
+    private static final String SAMPLE_PASSWORD = "Calibration#Sample1";
+
+    @Value("${password.bcrypt.strength:12}")
+    private int configuredStrength;
+
+    @Value("${password.bcrypt.min-strength:12}")
+    private int configuredMinStrength;
+
+    @Value("${password.bcrypt.calibrate:true}")
+    private boolean calibrate;
+
+    @Value("${password.bcrypt.target-millis:250}")
+    private long targetMillis;
+
+    @Value("${password.bcrypt.max-strength:14}")
+    private int maxStrength;
+
+    private int strength;
+
+    @PostConstruct
+    void init() {
+        int minStrength = configuredMinStrength;
+        if (minStrength < ABSOLUTE_MIN_STRENGTH) {
+            logger.warn("password.bcrypt.min-strength {} is below the absolute minimum, using {}",
+                    minStrength, ABSOLUTE_MIN_STRENGTH);
+            minStrength = ABSOLUTE_MIN_STRENGTH;
+        }
+        int upperBound = Math.max(minStrength, maxStrength);
+
+        int recommended = calibrate || configuredStrength == 0 ? calibrate(minStrength, upperBound) : -1;
+        if (configuredStrength == 0) {
+            strength = recommended;
+            logger.info("BCrypt strength {} (calibrated for a {} ms target)", strength, targetMillis);
+            return;
+        }
+
+        if (configuredStrength < minStrength || configuredStrength > upperBound) {
+            logger.warn("password.bcrypt.strength {} is outside {}..{}, clamping", configuredStrength, minStrength, upperBound);
+        }
+        strength = Math.min(upperBound, Math.max(minStrength, configuredStrength));
+        logger.info("BCrypt strength {}", strength);
+        if (recommended > 0 && recommended != strength) {
+            logger.info("BCrypt cost {} fits the {} ms target on this host; set password.bcrypt.strength to adopt it",
+                    recommended, targetMillis);
+        }
+    }
+
+    // Times this host and returns the highest cost within the target
+    private int calibrate(int minStrength, int upperBound) {
+        // Warm up the JIT, then time the minimum cost; each extra cost step doubles the work
+        measure(minStrength);
+        long baseNanos = Math.max(1, Math.min(measure(minStrength), measure(minStrength)));
+
+        int recommended = minStrength;
+        long estimate = baseNanos;
+        while (recommended < upperBound && estimate * 2 <= targetMillis * 1_000_000L) {
+            recommended++;
+            estimate *= 2;
+        }
+        logger.info("BCrypt cost {} takes ~{} ms on this host", minStrength, baseNanos / 1_000_000L);
+        return recommended;
+    }
+
+    private long measure(int cost) {
+        long start = System.nanoTime();
+        BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(cost));
+        return System.nanoTime() - start;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    /**
+     * Reads the cost from a stored hash such as {@code $2a$12$...}, or -1 when
+     * the value is not a BCrypt hash.
+     */
+    public static int strengthOf(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$'
+                || encodedPassword.charAt(3) != '$' || encodedPassword.charAt(6) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.userservice.util;
+
+import com.userservice.config.JwtConfig;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Asymmetric signing keys addressed by {@code kid}, loaded from a PKCS12 key
+ * store (one private key entry per alias) that every instance shares. The
+ * newest entry signs new tokens; older entries stay available for verification
+ * until they are removed from the store. The store is re-read on the rotation
+ * interval, so keys are rotated by adding an entry rather than restarting.
+ * Startup fails when an asymmetric algorithm is configured without a store,
+ * since keys generated per instance would not verify on any other instance.
+ * jwt.algorithm must be HS256, RS256 or EdDSA, and every key in the store must
+ * be of the configured type; anything else fails instead of signing with a
+ * different algorithm than the one configured.
+ */
+@Component
+public class JwtKeyRing {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private static final String HS256 = "HS256";
+    private static final String RS256 = "RS256";
+    private static final String EDDSA = "EdDSA";
+    private static final Set<String> EDDSA_KEY_ALGORITHMS = Set.of("EdDSA", "Ed25519", "Ed448");
+
+    @Autowired
+    private JwtConfig jwtConfig;
+
+    private volatile List<SigningKey> keys = Collections.emptyList();
+    private volatile Map<String, Object> jwks = Collections.emptyMap();
+
+    @PostConstruct
+    void init() {
+        String algorithm = jwtConfig.getAlgorithm();
+        if (!HS256.equals(algorithm) && !RS256.equals(algorithm) && !EDDSA.equals(algorithm)) {
+            throw new IllegalStateException("Unsupported jwt.algorithm " + algorithm + "; use HS256, RS256 or EdDSA");
+        }
+        if (!isAsymmetric()) {
+            return;
+        }
+        if (jwtConfig.getKeyStoreLocation() == null || jwtConfig.getKeyStoreLocation().isBlank()) {
+            throw new IllegalStateException("jwt.algorithm " + jwtConfig.getAlgorithm()
+                    + " requires jwt.key-store-location; use HS256 until signing keys are provisioned");
+        }
+        rotate();
+    }
+
+    public boolean isAsymmetric() {
+        return RS256.equals(jwtConfig.getAlgorithm()) || isEdDsa();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.key-rotation-interval:86400000}",
+            initialDelayString = "${jwt.key-rotation-interval:86400000}")
+    public void scheduledRotation() {
+        if (isAsymmetric()) {
+            rotate();
+        }
+    }
+
+    public synchronized void rotate() {
+        List<SigningKey> next = loadKeyStore();
+        next.sort(Comparator.comparing(SigningKey::getCreatedAt));
+        this.keys = List.copyOf(next);
+        this.jwks = buildJwks(next);
+        logger.info("JWT key ring loaded, active kid: {}, verification keys: {}",
+                getActiveKey().getKid(), next.size());
+    }
+
+    public SigningKey getActiveKey() {
+        List<SigningKey> current = keys;
+        if (current.isEmpty()) {
+            throw new IllegalStateException("JWT key ring has no signing keys");
+        }
+        return current.get(current.size() - 1);
+    }
+
+    public PublicKey findVerificationKey(String kid) {
+        for (SigningKey key : keys) {
+            if (key.getKid().equals(kid)) {
+                return key.getPublicKey();
+            }
+        }
+        return null;
+    }
+
+    public Map<String, Object> getJwks() {
+        return jwks;
+    }
+
+    private List<SigningKey> loadKeyStore() {
+        char[] password = jwtConfig.getKeyStorePassword() != null
+                ? jwtConfig.getKeyStorePassword().toCharArray() : new char[0];
+        try (InputStream in = Files.newInputStream(Path.of(jwtConfig.getKeyStoreLocation()))) {
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(in, password);
+
+            List<SigningKey> loaded = new ArrayList<>();
+            for (String alias : Collections.list(keyStore.aliases())) {
+                if (!keyStore.isKeyEntry(alias)) {
+                    continue;
+                }
+                Key key = keyStore.getKey(alias, password);
+                Certificate certificate = keyStore.getCertificate(alias);
+                if (!(key instanceof PrivateKey) || certificate == null) {
+                    continue;
+                }
+                if (!matchesAlgorithm(key) || !matchesAlgorithm(certificate.getPublicKey())) {
+                    throw new IllegalStateException("JWT key store entry " + alias + " holds a "
+                            + key.getAlgorithm() + " key, but jwt.algorithm is " + jwtConfig.getAlgorithm());
+                }
+                Instant createdAt = keyStore.getCreationDate(alias) != null
+                        ? keyStore.getCreationDate(alias).toInstant() : Instant.EPOCH;
+                loaded.add(new SigningKey(alias, (PrivateKey) key, certificate.getPublicKey(),
+                        signatureAlgorithm(), createdAt));
+            }
+            if (loaded.isEmpty()) {
+                throw new IllegalStateException("No private key entries in JWT key store");
+            }
+            return loaded;
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to load JWT key store: " + jwtConfig.getKeyStoreLocation(), e);
+        }
+    }
+
+    private Map<String, Object> buildJwks(List<SigningKey> current) {
+        List<Map<String, Object>> jwkList = new ArrayList<>();
+        for (SigningKey key : current) {
+            Jwk<?> jwk = Jwks.builder()
+                    .key(key.getPublicKey())
+                    .id(key.getKid())
+                    .algorithm(key.getAlgorithm().getId())
+                    .publicKeyUse("sig")
+                    .build();
+            jwkList.add(new LinkedHashMap<String, Object>(jwk));
+        }
+        Map<String, Object> set = new LinkedHashMap<>();
+        set.put("keys", jwkList);
+        return Collections.unmodifiableMap(set);
+    }
+
+    private boolean isEdDsa() {
+        return EDDSA.equals(jwtConfig.getAlgorithm());
+    }
+
+    private boolean matchesAlgorithm(Key key) {
+        return isEdDsa() ? EDDSA_KEY_ALGORITHMS.contains(key.getAlgorithm()) : "RSA".equals(key.getAlgorithm());
+    }
+
+    private SignatureAlgorithm signatureAlgorithm() {
+        return isEdDsa() ? Jwts.SIG.EdDSA : Jwts.SIG.RS256;
+    }
+
+    public static class SigningKey {
+        private final String kid;
+        private final PrivateKey privateKey;
+        private final PublicKey publicKey;
+        private final SignatureAlgorithm algorithm;
+        private final Instant createdAt;
+
+        public SigningKey(String kid, PrivateKey privateKey, PublicKey publicKey,
+                          SignatureAlgorithm algorithm, Instant createdAt) {
+            this.kid = kid;
+            this.privateKey = privateKey;
+            this.publicKey = publicKey;
+            this.algorithm = algorithm;
+            this.createdAt = createdAt;
+        }
+
+        public String getKid() { return kid; }
+        public PrivateKey getPrivateKey() { return privateKey; }
+        public PublicKey getPublicKey() { return publicKey; }
+        public SignatureAlgorithm getAlgorithm() { return algorithm; }
+        public Instant getCreatedAt() { return createdAt; }
+    }
+}
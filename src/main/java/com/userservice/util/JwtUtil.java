@@ -2,10 +2,14 @@ package com.userservice.util;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.security.Key;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -14,6 +18,9 @@ import java.util.function.Function;
 @Component
 public class JwtUtil {
     
+    @Autowired
+    private JwtKeyRing keyRing;
+    
     @Value("${jwt.secret}")
     private String secret;
     
@@ -23,8 +30,67 @@ public class JwtUtil {
     @Value("${jwt.refresh-expiration}")
     private Long refreshExpiration;
     
+    @Value("${jwt.claims-cache.max-entries:10000}")
+    private int claimsCacheMaxEntries;
+    
+    @Value("${jwt.claims-cache.ttl:60000}")
+    private long claimsCacheTtl;
+    
+    @Value("${jwt.hmac-accepted-until:}")
+    private String hmacAcceptedUntil;
+    
+    // Derived once; both the key and the parser are immutable and thread-safe
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private VerifiedClaimsCache claimsCache;
+    private Instant hmacCutoff;
+    
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.hmacCutoff = hmacAcceptedUntil.isBlank() ? null : Instant.parse(hmacAcceptedUntil);
+        this.parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        String kid = header.getKeyId();
+                        if (kid == null) {
+                            // HMAC tokens, or ones issued before asymmetric signing was enabled
+                            if (keyRing.isAsymmetric()
+                                    && (hmacCutoff == null || Instant.now().isAfter(hmacCutoff))) {
+                                throw new UnsupportedJwtException("HMAC-signed tokens are no longer accepted");
+                            }
+                            return signingKey;
+                        }
+                        Key key = keyRing.findVerificationKey(kid);
+                        if (key == null) {
+                            throw new UnsupportedJwtException("Unknown signing key id: " + kid);
+                        }
+                        return key;
+                    }
+                })
+                .build();
+        this.claimsCache = new VerifiedClaimsCache(claimsCacheMaxEntries, claimsCacheTtl);
+    }
+    
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+        return signingKey;
+    }
+    
+    /**
+     * Verifies the token signature and expiry once and returns its claims.
+     * Recently verified tokens are served from the claims cache.
+     */
+    public Claims verify(String token) {
+        long now = System.currentTimeMillis();
+        TokenDigest digest = TokenDigest.of(token);
+        Claims cached = claimsCache.get(digest, now);
+        if (cached != null) {
+            return cached;
+        }
+        Claims claims = extractAllClaims(token);
+        claimsCache.put(digest, claims, now);
+        return claims;
     }
     
     public String extractUsername(String token) {
@@ -36,24 +102,20 @@ public class JwtUtil {
     }
     
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = verify(token);
         return claimsResolver.apply(claims);
     }
     
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            return parser.parseSignedClaims(token).getPayload();
         } catch (JwtException e) {
             throw new RuntimeException("Invalid JWT token", e);
         }
     }
     
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private Boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
     
     public String generateToken(String username) {
@@ -61,6 +123,15 @@ public class JwtUtil {
         return createToken(claims, username, expiration);
     }
     
+    public String generateToken(String username, Map<String, Object> extraClaims) {
+        return createToken(new HashMap<>(extraClaims), username, expiration);
+    }
+    
+    // Re-issues an access token with new claims but the original expiry
+    public String generateToken(String username, Map<String, Object> extraClaims, Date expiresAt) {
+        return createToken(new HashMap<>(extraClaims), username, expiresAt);
+    }
+    
     public String generateRefreshToken(String username) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("type", "refresh");
@@ -68,28 +139,52 @@ public class JwtUtil {
     }
     
     private String createToken(Map<String, Object> claims, String subject, Long expiration) {
-        return Jwts.builder()
+        return createToken(claims, subject, new Date(System.currentTimeMillis() + expiration));
+    }
+    
+    private String createToken(Map<String, Object> claims, String subject, Date expiresAt) {
+        JwtBuilder builder = Jwts.builder()
                 .claims(claims)
                 .subject(subject)
                 .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
-                .compact();
+                .expiration(expiresAt);
+
+        if (keyRing.isAsymmetric()) {
+            JwtKeyRing.SigningKey key = keyRing.getActiveKey();
+            builder.header().keyId(key.getKid()).and()
+                    .signWith(key.getPrivateKey(), key.getAlgorithm());
+        } else {
+            builder.signWith(getSigningKey());
+        }
+        return builder.compact();
+    }
+    
+    // Tokens without a type claim are access tokens
+    public boolean isAccessToken(Claims claims) {
+        return !"refresh".equals(claims.get("type", String.class));
     }
     
     public Boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+        final Claims claims = verify(token);
+        return (claims.getSubject().equals(username) && !isTokenExpired(claims));
     }
     
     public Boolean validateToken(String token) {
         try {
-            return !isTokenExpired(token);
+            return !isTokenExpired(verify(token));
         } catch (Exception e) {
             return false;
         }
     }
     
+    public void evictFromCache(String token) {
+        claimsCache.invalidate(TokenDigest.of(token));
+    }
+    
+    public VerifiedClaimsCache getClaimsCache() {
+        return claimsCache;
+    }
+    
     public Long getExpirationTime() {
         return expiration;
     }
@@ -0,0 +1,353 @@
+package com.userservice.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open-addressing hash table of session slots held in direct memory and keyed
+ * by {@link TokenDigest}. Each slot is 64 bytes: the four digest words, the
+ * session id, the user id, the expiry (epoch millis) and the slot state. The
+ * table is split into independently locked segments; lookups use optimistic
+ * reads and do not allocate.
+ */
+public class OffHeapSessionTable {
+
+    static final int SLOT_BYTES = 64;
+
+    // Lookup results other than a session id
+    public static final long NOT_FOUND = -1;
+    public static final long NOT_ACTIVE = -2;
+
+    private static final int OFF_W0 = 0;
+    private static final int OFF_W1 = 8;
+    private static final int OFF_W2 = 16;
+    private static final int OFF_W3 = 24;
+    private static final int OFF_SESSION_ID = 32;
+    private static final int OFF_USER_ID = 40;
+    private static final int OFF_EXPIRES_AT = 48;
+    private static final int OFF_STATE = 56;
+
+    private static final long EMPTY = 0;
+    private static final long ACTIVE = 1;
+    private static final long INACTIVE = 2;
+    private static final long DELETED = 3;
+
+    // Rebuild a segment once live entries plus tombstones pass this fill ratio
+    private static final double MAX_FILL = 0.75;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    public OffHeapSessionTable(int capacity, int segmentCount) {
+        int segmentsPow2 = Integer.highestOneBit(Math.max(1, segmentCount));
+        int slotsPerSegment = Integer.highestOneBit(Math.max(16, capacity / segmentsPow2));
+        if ((long) slotsPerSegment * SLOT_BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Session table segment too large, increase the segment count");
+        }
+        this.segments = new Segment[segmentsPow2];
+        this.segmentMask = segmentsPow2 - 1;
+        for (int i = 0; i < segmentsPow2; i++) {
+            segments[i] = new Segment(slotsPerSegment);
+        }
+    }
+
+    /**
+     * Inserts or replaces the slot for the digest. Returns false when the
+     * segment is full of live sessions, in which case callers fall back to the
+     * database.
+     */
+    public boolean put(TokenDigest digest, long sessionId, long userId, long expiresAt, boolean active) {
+        return segmentFor(digest).put(digest, sessionId, userId, expiresAt, active ? ACTIVE : INACTIVE);
+    }
+
+    /**
+     * Returns the session id for an active, unexpired slot, {@link #NOT_ACTIVE}
+     * when the slot is inactive or expired, or {@link #NOT_FOUND}.
+     */
+    public long findActiveSessionId(TokenDigest digest, long now) {
+        return segmentFor(digest).findActiveSessionId(digest, now);
+    }
+
+    /**
+     * Returns the session id stored for the digest regardless of state, or
+     * {@link #NOT_FOUND}.
+     */
+    public long findSessionId(TokenDigest digest) {
+        return segmentFor(digest).findSessionId(digest);
+    }
+
+    public boolean markInactive(TokenDigest digest) {
+        return segmentFor(digest).setState(digest, INACTIVE);
+    }
+
+    public boolean remove(TokenDigest digest) {
+        return segmentFor(digest).setState(digest, DELETED);
+    }
+
+    public int markUserInactive(long userId) {
+        int updated = 0;
+        for (Segment segment : segments) {
+            updated += segment.markUserInactive(userId);
+        }
+        return updated;
+    }
+
+    public int evictExpired(long now) {
+        int evicted = 0;
+        for (Segment segment : segments) {
+            evicted += segment.evictExpired(now);
+        }
+        return evicted;
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.live;
+        }
+        return size;
+    }
+
+    public long activeCount() {
+        long active = 0;
+        for (Segment segment : segments) {
+            active += segment.active;
+        }
+        return active;
+    }
+
+    public long capacity() {
+        return (long) segments.length * segments[0].slots;
+    }
+
+    public double occupancy() {
+        return (double) size() / capacity();
+    }
+
+    public long offHeapBytes() {
+        return capacity() * SLOT_BYTES;
+    }
+
+    private Segment segmentFor(TokenDigest digest) {
+        return segments[(int) (digest.word(0) >>> 40) & segmentMask];
+    }
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private final int slots;
+        private final int mask;
+        private final int maxUsed;
+        private ByteBuffer buffer;
+        private volatile int live;
+        private volatile int active;
+        private int used;   // live slots plus tombstones
+
+        private Segment(int slots) {
+            this.slots = slots;
+            this.mask = slots - 1;
+            this.maxUsed = (int) (slots * MAX_FILL);
+            this.buffer = allocate(slots);
+        }
+
+        private static ByteBuffer allocate(int slots) {
+            return ByteBuffer.allocateDirect(slots * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        }
+
+        long findActiveSessionId(TokenDigest digest, long now) {
+            long stamp = lock.tryOptimisticRead();
+            long result = readActive(buffer, digest, now);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    result = readActive(buffer, digest, now);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return result;
+        }
+
+        long findSessionId(TokenDigest digest) {
+            long stamp = lock.readLock();
+            try {
+                int slot = indexOf(buffer, digest);
+                return slot < 0 ? NOT_FOUND : buffer.getLong(slot * SLOT_BYTES + OFF_SESSION_ID);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private long readActive(ByteBuffer buf, TokenDigest digest, long now) {
+            int slot = indexOf(buf, digest);
+            if (slot < 0) {
+                return NOT_FOUND;
+            }
+            int base = slot * SLOT_BYTES;
+            if (buf.getLong(base + OFF_STATE) != ACTIVE || buf.getLong(base + OFF_EXPIRES_AT) <= now) {
+                return NOT_ACTIVE;
+            }
+            return buf.getLong(base + OFF_SESSION_ID);
+        }
+
+        private int indexOf(ByteBuffer buf, TokenDigest digest) {
+            int slot = (int) digest.word(1) & mask;
+            for (int probes = 0; probes < slots; probes++) {
+                int base = slot * SLOT_BYTES;
+                long state = buf.getLong(base + OFF_STATE);
+                if (state == EMPTY) {
+                    return -1;
+                }
+                if (state != DELETED && matches(buf, base, digest)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        boolean put(TokenDigest digest, long sessionId, long userId, long expiresAt, long state) {
+            long stamp = lock.writeLock();
+            try {
+                int existing = indexOf(buffer, digest);
+                if (existing >= 0) {
+                    int base = existing * SLOT_BYTES;
+                    adjustActive(buffer.getLong(base + OFF_STATE), state);
+                    writeSlot(buffer, base, digest, sessionId, userId, expiresAt, state);
+                    return true;
+                }
+                if (used >= maxUsed) {
+                    rebuild();
+                    if (used >= maxUsed) {
+                        return false;
+                    }
+                }
+                int slot = (int) digest.word(1) & mask;
+                while (true) {
+                    int base = slot * SLOT_BYTES;
+                    long current = buffer.getLong(base + OFF_STATE);
+                    if (current == EMPTY || current == DELETED) {
+                        if (current == EMPTY) {
+                            used++;
+                        }
+                        writeSlot(buffer, base, digest, sessionId, userId, expiresAt, state);
+                        live++;
+                        adjustActive(DELETED, state);
+                        return true;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean setState(TokenDigest digest, long state) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = indexOf(buffer, digest);
+                if (slot < 0) {
+                    return false;
+                }
+                int base = slot * SLOT_BYTES;
+                adjustActive(buffer.getLong(base + OFF_STATE), state);
+                buffer.putLong(base + OFF_STATE, state);
+                if (state == DELETED) {
+                    live--;
+                }
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int markUserInactive(long userId) {
+            long stamp = lock.writeLock();
+            try {
+                int updated = 0;
+                for (int slot = 0; slot < slots; slot++) {
+                    int base = slot * SLOT_BYTES;
+                    if (buffer.getLong(base + OFF_STATE) == ACTIVE && buffer.getLong(base + OFF_USER_ID) == userId) {
+                        adjustActive(ACTIVE, INACTIVE);
+                        buffer.putLong(base + OFF_STATE, INACTIVE);
+                        updated++;
+                    }
+                }
+                return updated;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int evictExpired(long now) {
+            long stamp = lock.writeLock();
+            try {
+                int evicted = 0;
+                for (int slot = 0; slot < slots; slot++) {
+                    int base = slot * SLOT_BYTES;
+                    long state = buffer.getLong(base + OFF_STATE);
+                    if ((state == ACTIVE || state == INACTIVE) && buffer.getLong(base + OFF_EXPIRES_AT) <= now) {
+                        adjustActive(state, DELETED);
+                        buffer.putLong(base + OFF_STATE, DELETED);
+                        live--;
+                        evicted++;
+                    }
+                }
+                return evicted;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // Re-inserts live slots into a fresh buffer to drop tombstones; caller holds the write lock
+        private void rebuild() {
+            ByteBuffer fresh = allocate(slots);
+            int rebuilt = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                int base = slot * SLOT_BYTES;
+                long state = buffer.getLong(base + OFF_STATE);
+                if (state != ACTIVE && state != INACTIVE) {
+                    continue;
+                }
+                int target = (int) buffer.getLong(base + OFF_W1) & mask;
+                while (fresh.getLong(target * SLOT_BYTES + OFF_STATE) != EMPTY) {
+                    target = (target + 1) & mask;
+                }
+                int targetBase = target * SLOT_BYTES;
+                for (int offset = 0; offset < SLOT_BYTES; offset += 8) {
+                    fresh.putLong(targetBase + offset, buffer.getLong(base + offset));
+                }
+                rebuilt++;
+            }
+            this.buffer = fresh;
+            this.used = rebuilt;
+        }
+
+        private void adjustActive(long from, long to) {
+            if (from == ACTIVE && to != ACTIVE) {
+                active--;
+            } else if (from != ACTIVE && to == ACTIVE) {
+                active++;
+            }
+        }
+
+        private static boolean matches(ByteBuffer buf, int base, TokenDigest digest) {
+            return buf.getLong(base + OFF_W0) == digest.word(0)
+                    && buf.getLong(base + OFF_W1) == digest.word(1)
+                    && buf.getLong(base + OFF_W2) == digest.word(2)
+                    && buf.getLong(base + OFF_W3) == digest.word(3);
+        }
+
+        private static void writeSlot(ByteBuffer buf, int base, TokenDigest digest,
+                                      long sessionId, long userId, long expiresAt, long state) {
+            buf.putLong(base + OFF_W0, digest.word(0));
+            buf.putLong(base + OFF_W1, digest.word(1));
+            buf.putLong(base + OFF_W2, digest.word(2));
+            buf.putLong(base + OFF_W3, digest.word(3));
+            buf.putLong(base + OFF_SESSION_ID, sessionId);
+            buf.putLong(base + OFF_USER_ID, userId);
+            buf.putLong(base + OFF_EXPIRES_AT, expiresAt);
+            buf.putLong(base + OFF_STATE, state);
+        }
+    }
+}
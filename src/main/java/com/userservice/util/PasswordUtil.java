@@ -1,10 +1,25 @@
 package com.userservice.util;
 
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import com.userservice.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
 import java.security.SecureRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 
 @Component
@@ -13,24 +28,106 @@ public class PasswordUtil {
     private final PasswordEncoder passwordEncoder;
     private final SecureRandom secureRandom;
     
+    // BCrypt runs on this bounded pool instead of the servlet threads
+    @Autowired
+    @Qualifier("passwordHashExecutor")
+    private ThreadPoolTaskExecutor hashExecutor;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${password.hash.timeout:10000}")
+    private long hashTimeoutMillis;
+    
+    @Value("${password.hash.retry-after:1}")
+    private long retryAfterSeconds;
+    
+    private Timer encodeTimer;
+    private Timer matchTimer;
+    private Counter rejectedCounter;
+    private Counter timeoutCounter;
+    
     // Password validation patterns
     private static final Pattern UPPERCASE_PATTERN = Pattern.compile(".*[A-Z].*");
     private static final Pattern LOWERCASE_PATTERN = Pattern.compile(".*[a-z].*");
     private static final Pattern DIGIT_PATTERN = Pattern.compile(".*\\d.*");
     private static final Pattern SPECIAL_CHAR_PATTERN = Pattern.compile(".*[!@#$%^&*()_+\\-=\\[\\]{};':\"\\\\|,.<>\\/?].*");
     
-    public PasswordUtil() {
-        this.passwordEncoder = new BCryptPasswordEncoder(12);
+    @Autowired
+    private BCryptCalibrator calibrator;
+    
+    public PasswordUtil(PasswordEncoder passwordEncoder) {
+        this.passwordEncoder = passwordEncoder;
         this.secureRandom = new SecureRandom();
     }
     
+    @PostConstruct
+    void registerMetrics() {
+        encodeTimer = Timer.builder("password.hash.latency").tag("operation", "encode").register(meterRegistry);
+        matchTimer = Timer.builder("password.hash.latency").tag("operation", "match").register(meterRegistry);
+        rejectedCounter = Counter.builder("password.hash.rejected")
+                .description("Hash requests refused because the hashing queue was full")
+                .register(meterRegistry);
+        timeoutCounter = Counter.builder("password.hash.timeouts")
+                .description("Hash requests abandoned after waiting longer than password.hash.timeout")
+                .register(meterRegistry);
+        Gauge.builder("password.hash.queue.depth", hashExecutor,
+                        executor -> executor.getThreadPoolExecutor().getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("password.hash.active", hashExecutor, ThreadPoolTaskExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+    
     public String encodePassword(String rawPassword) {
         validatePassword(rawPassword);
-        return passwordEncoder.encode(rawPassword);
+        return runOnHashExecutor(encodeTimer, () -> passwordEncoder.encode(rawPassword));
     }
     
     public boolean matches(String rawPassword, String encodedPassword) {
-        return passwordEncoder.matches(rawPassword, encodedPassword);
+        return runOnHashExecutor(matchTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+    
+    /**
+     * True when the stored hash was produced with a different work factor than
+     * the one in use, so lowering the fleet cost also converges existing hashes.
+     */
+    public boolean needsRehash(String encodedPassword) {
+        int storedStrength = BCryptCalibrator.strengthOf(encodedPassword);
+        return storedStrength > 0 && storedStrength != calibrator.getStrength();
+    }
+    
+    // Re-encodes an already verified password; skips the strength policy so legacy passwords can migrate
+    public String rehashPassword(String rawPassword) {
+        return runOnHashExecutor(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+    
+    private <T> T runOnHashExecutor(Timer timer, Callable<T> task) {
+        Future<T> future;
+        try {
+            future = hashExecutor.submit(() -> timer.recordCallable(task));
+        } catch (TaskRejectedException e) {
+            rejectedCounter.increment();
+            throw new TooManyRequestsException("Too many authentication requests, please retry later",
+                    retryAfterSeconds);
+        }
+        
+        try {
+            return future.get(hashTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timeoutCounter.increment();
+            throw new TooManyRequestsException("Authentication is taking too long, please retry later",
+                    retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
     }
     
     public void validatePassword(String password) {
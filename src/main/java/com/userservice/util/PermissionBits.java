@@ -0,0 +1,23 @@
+package com.userservice.util;
+
+import java.util.Base64;
+import java.util.BitSet;
+
+/**
+ * Compact base64url form of a permission bitset, as carried in access tokens.
+ */
+public final class PermissionBits {
+
+    private PermissionBits() {}
+
+    public static String encode(BitSet bits) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bits.toByteArray());
+    }
+
+    public static BitSet decode(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return new BitSet();
+        }
+        return BitSet.valueOf(Base64.getUrlDecoder().decode(encoded));
+    }
+}
@@ -20,9 +20,13 @@ public class RequestUtil {
         return request.getRemoteAddr();
     }
     
+    // Cut to the 500 characters the user_agent columns hold
     public String getUserAgent(HttpServletRequest request) {
         String userAgent = request.getHeader("User-Agent");
-        return userAgent != null ? userAgent : "Unknown";
+        if (userAgent == null) {
+            return "Unknown";
+        }
+        return userAgent.length() > 500 ? userAgent.substring(0, 500) : userAgent;
     }
     
     public String getAuthTokenFromRequest(HttpServletRequest request) {
@@ -0,0 +1,62 @@
+package com.userservice.util;
+
+import com.userservice.dto.AuditEvent;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring of the most recent security events recorded by this
+ * instance. Writers claim a slot with one atomic increment and never block;
+ * readers walk back from the newest slot, so a dashboard read costs at most
+ * one pass over the ring.
+ */
+public class SecurityEventRing {
+
+    private final AtomicReferenceArray<AuditEvent> slots;
+    private final int capacity;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SecurityEventRing(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    public void add(AuditEvent event) {
+        long position = sequence.getAndIncrement();
+        slots.set((int) (position % capacity), event);
+    }
+
+    /**
+     * Newest-first events at or after {@code since} (null for no bound), at
+     * most {@code limit} of them.
+     */
+    public List<AuditEvent> recent(LocalDateTime since, int limit) {
+        long newest = sequence.get() - 1;
+        long oldest = Math.max(0, newest - capacity + 1);
+        List<AuditEvent> events = new ArrayList<>(Math.min(limit, capacity));
+        for (long position = newest; position >= oldest && events.size() < limit; position--) {
+            AuditEvent event = slots.get((int) (position % capacity));
+            if (event == null) {
+                // Slot claimed but not yet written
+                continue;
+            }
+            if (since != null && event.getTimestamp().isBefore(since)) {
+                break;
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    public long getTotalRecorded() {
+        return sequence.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,63 @@
+package com.userservice.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Event counter over a sliding time window split into fixed buckets.
+ * Increments are lock-free; a bucket is recycled under the counter's lock the
+ * first time it is touched in a new period, so the count is exact to within
+ * one bucket width.
+ */
+public class SlidingWindowCounter {
+
+    private final long bucketMillis;
+    private final int buckets;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray periods;
+    private volatile long lastTouched;
+
+    public SlidingWindowCounter(long windowMillis, int buckets) {
+        this.buckets = buckets;
+        this.bucketMillis = Math.max(1, windowMillis / buckets);
+        this.counts = new AtomicLongArray(buckets);
+        this.periods = new AtomicLongArray(buckets);
+    }
+
+    public long incrementAndGet(long now) {
+        long period = now / bucketMillis;
+        int index = (int) (period % buckets);
+        if (periods.get(index) < period) {
+            rotate(index, period);
+        }
+        counts.incrementAndGet(index);
+        lastTouched = now;
+        return count(now);
+    }
+
+    // Clears the bucket before publishing its new period, so an increment that sees the new period is never wiped
+    private synchronized void rotate(int index, long period) {
+        if (periods.get(index) < period) {
+            counts.set(index, 0);
+            periods.set(index, period);
+        }
+    }
+
+    public long count(long now) {
+        long period = now / bucketMillis;
+        long total = 0;
+        for (int i = 0; i < buckets; i++) {
+            if (period - periods.get(i) < buckets) {
+                total += counts.get(i);
+            }
+        }
+        return total;
+    }
+
+    public boolean isIdle(long now) {
+        return now - lastTouched >= bucketMillis * buckets;
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+}
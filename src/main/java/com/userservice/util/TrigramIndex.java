@@ -0,0 +1,250 @@
+package com.userservice.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Case-insensitive substring search over a few short text fields per
+ * document. Every field is broken into character trigrams, each mapped to a
+ * sorted int[] posting list of document ordinals; a query intersects the
+ * lists of its trigrams, shortest first, and then confirms the substring on
+ * the surviving candidates. Queries shorter than three characters scan the
+ * documents directly. Trigrams never span two fields, so a match always lies
+ * within one field, as with a per-column LIKE '%keyword%'.
+ */
+public class TrigramIndex {
+
+    /**
+     * A matching document. Score is 3 when a field equals the query, 2 when
+     * one starts with it and 1 when one merely contains it.
+     */
+    public record Hit(long id, long createdAt, String[] fields, int score) {}
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+
+    // Per ordinal; fields are stored lower-cased, a null entry marks a free ordinal
+    private long[] ids = new long[1024];
+    private long[] createdAts = new long[1024];
+    private String[][] fields = new String[1024][];
+    private int nextOrdinal;
+    private int[] freeOrdinals = new int[16];
+    private int freeCount;
+
+    /**
+     * Adds the document or replaces its fields.
+     */
+    public void put(long id, long createdAt, String... values) {
+        String[] normalized = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            normalized[i] = values[i] != null ? values[i].toLowerCase(Locale.ROOT) : "";
+        }
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinals.get(id);
+            int ordinal;
+            if (existing != null) {
+                ordinal = existing;
+                if (Arrays.equals(fields[ordinal], normalized)) {
+                    createdAts[ordinal] = createdAt;
+                    return;
+                }
+                unindex(ordinal);
+            } else {
+                ordinal = allocate();
+                ordinals.put(id, ordinal);
+            }
+            ids[ordinal] = id;
+            createdAts[ordinal] = createdAt;
+            fields[ordinal] = normalized;
+            for (String value : normalized) {
+                for (int i = 0; i + 3 <= value.length(); i++) {
+                    postings.computeIfAbsent(trigram(value, i), k -> new PostingList()).add(ordinal);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal == null) {
+                return;
+            }
+            unindex(ordinal);
+            fields[ordinal] = null;
+            if (freeCount == freeOrdinals.length) {
+                freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount * 2);
+            }
+            freeOrdinals[freeCount++] = ordinal;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Every document with a field containing the query, in ordinal order.
+     * An empty query matches all documents.
+     */
+    public List<Hit> search(String query) {
+        String needle = query != null ? query.toLowerCase(Locale.ROOT) : "";
+        lock.readLock().lock();
+        try {
+            List<Hit> hits = new ArrayList<>();
+            if (needle.length() < 3) {
+                for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+                    collect(ordinal, needle, hits);
+                }
+                return hits;
+            }
+
+            PostingList[] lists = new PostingList[needle.length() - 2];
+            for (int i = 0; i < lists.length; i++) {
+                PostingList list = postings.get(trigram(needle, i));
+                if (list == null) {
+                    return hits;
+                }
+                lists[i] = list;
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+            PostingList shortest = lists[0];
+            for (int i = 0; i < shortest.size; i++) {
+                int ordinal = shortest.docs[i];
+                boolean inAll = true;
+                for (int l = 1; l < lists.length && inAll; l++) {
+                    inAll = lists[l].contains(ordinal);
+                }
+                if (inAll) {
+                    // Trigrams can all occur without the whole query occurring, so confirm
+                    collect(ordinal, needle, hits);
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int trigramCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collect(int ordinal, String needle, List<Hit> hits) {
+        String[] values = fields[ordinal];
+        if (values == null) {
+            return;
+        }
+        int score = 0;
+        for (String value : values) {
+            if (value.equals(needle)) {
+                score = 3;
+                break;
+            } else if (value.startsWith(needle)) {
+                score = Math.max(score, 2);
+            } else if (score == 0 && value.contains(needle)) {
+                score = 1;
+            }
+        }
+        if (score > 0) {
+            hits.add(new Hit(ids[ordinal], createdAts[ordinal], values, score));
+        }
+    }
+
+    private void unindex(int ordinal) {
+        for (String value : fields[ordinal]) {
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                long key = trigram(value, i);
+                PostingList list = postings.get(key);
+                if (list != null && list.remove(ordinal) && list.size == 0) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return freeOrdinals[--freeCount];
+        }
+        if (nextOrdinal == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            createdAts = Arrays.copyOf(createdAts, capacity);
+            fields = Arrays.copyOf(fields, capacity);
+        }
+        return nextOrdinal++;
+    }
+
+    private static long trigram(String value, int offset) {
+        return ((long) value.charAt(offset) << 32) | ((long) value.charAt(offset + 1) << 16) | value.charAt(offset + 2);
+    }
+
+    // Sorted, duplicate-free ordinals; ordinals are mostly handed out in increasing order, so adds append
+    private static final class PostingList {
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(int ordinal) {
+            if (size > 0 && docs[size - 1] < ordinal) {
+                append(ordinal);
+                return;
+            }
+            int position = Arrays.binarySearch(docs, 0, size, ordinal);
+            if (position >= 0) {
+                return;
+            }
+            int insertAt = -position - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            System.arraycopy(docs, insertAt, docs, insertAt + 1, size - insertAt);
+            docs[insertAt] = ordinal;
+            size++;
+        }
+
+        boolean remove(int ordinal) {
+            int position = Arrays.binarySearch(docs, 0, size, ordinal);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(docs, position + 1, docs, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(int ordinal) {
+            return Arrays.binarySearch(docs, 0, size, ordinal) >= 0;
+        }
+
+        private void append(int ordinal) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = ordinal;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.userservice.util;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of already verified JWT claims keyed by the token digest.
+ * An entry never outlives the token's own expiry nor the configured TTL.
+ */
+public class VerifiedClaimsCache {
+
+    private final ConcurrentHashMap<TokenDigest, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final AtomicLong lastSweep = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public VerifiedClaimsCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public Claims get(TokenDigest digest, long now) {
+        Entry entry = entries.get(digest);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.expiresAt <= now) {
+            entries.remove(digest, entry);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.claims;
+    }
+
+    public void put(TokenDigest digest, Claims claims, long now) {
+        if (maxEntries <= 0 || ttlMillis <= 0) {
+            return;
+        }
+        long expiresAt = now + ttlMillis;
+        if (claims.getExpiration() != null) {
+            expiresAt = Math.min(expiresAt, claims.getExpiration().getTime());
+        }
+        if (expiresAt <= now) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evictExpired(now);
+            if (entries.size() >= maxEntries) {
+                // Still full of live tokens: skip caching rather than grow unbounded
+                return;
+            }
+        }
+        entries.put(digest, new Entry(claims, expiresAt));
+    }
+
+    public void invalidate(TokenDigest digest) {
+        entries.remove(digest);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void evictExpired(long now) {
+        long previous = lastSweep.get();
+        // At most one full sweep per second, whichever thread wins the race does it
+        if (now - previous < 1000 || !lastSweep.compareAndSet(previous, now)) {
+            return;
+        }
+        Iterator<Map.Entry<TokenDigest, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue().expiresAt <= now) {
+                it.remove();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Claims claims;
+        private final long expiresAt;
+
+        private Entry(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
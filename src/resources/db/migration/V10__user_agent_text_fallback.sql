@@ -0,0 +1,39 @@
+-- User agents stay dictionary-encoded in user_agent_id (V6) until the
+-- dictionary reaches string-dictionary.bounded-limit; later agents are kept
+-- as text in a nullable user_agent column, added here to audit_logs and
+-- user_sessions. Existing rows keep their ids. On a fresh schema Hibernate
+-- creates the user_sessions columns. Every step checks its own state, so a
+-- failed run can be repeated.
+DECLARE
+    FUNCTION has_table(table_name VARCHAR2) RETURN BOOLEAN IS
+        table_count NUMBER;
+    BEGIN
+        SELECT COUNT(*) INTO table_count FROM user_tables WHERE table_name = has_table.table_name;
+        RETURN table_count > 0;
+    END;
+
+    FUNCTION has_column(table_name VARCHAR2, column_name VARCHAR2) RETURN BOOLEAN IS
+        column_count NUMBER;
+    BEGIN
+        SELECT COUNT(*) INTO column_count FROM user_tab_columns
+         WHERE table_name = has_column.table_name AND column_name = has_column.column_name;
+        RETURN column_count > 0;
+    END;
+
+    PROCEDURE add_user_agent_columns(table_name VARCHAR2) IS
+    BEGIN
+        IF NOT has_table(table_name) THEN
+            RETURN;
+        END IF;
+        IF NOT has_column(table_name, 'USER_AGENT_ID') THEN
+            EXECUTE IMMEDIATE 'ALTER TABLE ' || table_name || ' ADD (user_agent_id NUMBER(10))';
+        END IF;
+        IF NOT has_column(table_name, 'USER_AGENT') THEN
+            EXECUTE IMMEDIATE 'ALTER TABLE ' || table_name || ' ADD (user_agent VARCHAR2(500 CHAR))';
+        END IF;
+    END;
+BEGIN
+    add_user_agent_columns('AUDIT_LOGS');
+    add_user_agent_columns('USER_SESSIONS');
+END;
+/
@@ -0,0 +1,30 @@
+-- Shared permission catalog version, raised with every permission creation,
+-- grant and revoke so tokens snapshotted before the change are re-issued on
+-- every instance. It starts one past the version derived from bit positions,
+-- so each outstanding token is re-issued once against the persisted version.
+-- Every step checks its own state, so a failed run can be repeated.
+DECLARE
+    object_count   NUMBER;
+    start_version  NUMBER := 1;
+BEGIN
+    SELECT COUNT(*) INTO object_count FROM user_tables WHERE table_name = 'PERMISSION_CATALOG_VERSION';
+    IF object_count = 0 THEN
+        EXECUTE IMMEDIATE
+            'CREATE TABLE permission_catalog_version (' ||
+            '  id       NUMBER(1)   NOT NULL,' ||
+            '  version  NUMBER(10)  NOT NULL,' ||
+            '  CONSTRAINT pk_permission_catalog_version PRIMARY KEY (id),' ||
+            '  CONSTRAINT ck_perm_catalog_version_id CHECK (id = 1))';
+    END IF;
+
+    SELECT COUNT(*) INTO object_count FROM user_tab_columns
+     WHERE table_name = 'PERMISSIONS' AND column_name = 'BIT_INDEX';
+    IF object_count > 0 THEN
+        EXECUTE IMMEDIATE 'SELECT NVL(MAX(bit_index), -1) + 2 FROM permissions' INTO start_version;
+    END IF;
+
+    EXECUTE IMMEDIATE
+        'MERGE INTO permission_catalog_version v USING (SELECT 1 AS id FROM dual) s ON (v.id = s.id) ' ||
+        'WHEN NOT MATCHED THEN INSERT (id, version) VALUES (1, :start_version)' USING start_version;
+END;
+/
@@ -0,0 +1,43 @@
+-- Backfills the audit rollups with the audit_logs rows written before the
+-- rollups existed. Everything older than the first rollup bucket goes into
+-- hour rows, except the partial hour just before that bucket, which goes into
+-- minute rows so compaction folds it in with the rest of that hour. Events
+-- that were never written as rows cannot be recovered. Scans audit_logs once,
+-- so on a large table run it in a quiet period. Skipped on a fresh schema.
+-- The block only changes rows, so a failed run rolls back and can be
+-- repeated.
+DECLARE
+    object_count   NUMBER;
+    boundary       TIMESTAMP;
+    boundary_hour  TIMESTAMP;
+BEGIN
+    SELECT COUNT(*) INTO object_count FROM user_tab_columns
+     WHERE table_name = 'AUDIT_LOGS' AND column_name = 'ACTION_ID';
+    IF object_count = 0 THEN
+        RETURN;
+    END IF;
+
+    SELECT MIN(bucket_start) INTO boundary FROM (
+        SELECT MIN(bucket_start) AS bucket_start FROM audit_rollup_hour
+        UNION ALL
+        SELECT MIN(bucket_start) FROM audit_rollup_minute);
+    boundary := NVL(boundary, CAST(TRUNC(SYSDATE, 'MI') AS TIMESTAMP));
+    boundary_hour := CAST(TRUNC(boundary, 'HH') AS TIMESTAMP);
+
+    EXECUTE IMMEDIATE
+        'INSERT INTO audit_rollup_hour (bucket_start, action, event_count) ' ||
+        'SELECT CAST(TRUNC(a.timestamp, ''HH'') AS TIMESTAMP), d.value, COUNT(*) ' ||
+        '  FROM audit_logs a JOIN string_dictionary d ON d.id = a.action_id ' ||
+        ' WHERE a.timestamp < :boundary_hour ' ||
+        ' GROUP BY TRUNC(a.timestamp, ''HH''), d.value'
+        USING boundary_hour;
+
+    EXECUTE IMMEDIATE
+        'INSERT INTO audit_rollup_minute (bucket_start, action, event_count) ' ||
+        'SELECT CAST(TRUNC(a.timestamp, ''MI'') AS TIMESTAMP), d.value, COUNT(*) ' ||
+        '  FROM audit_logs a JOIN string_dictionary d ON d.id = a.action_id ' ||
+        ' WHERE a.timestamp >= :boundary_hour AND a.timestamp < :boundary ' ||
+        ' GROUP BY TRUNC(a.timestamp, ''MI''), d.value'
+        USING boundary_hour, boundary;
+END;
+/
@@ -0,0 +1,42 @@
+-- Seeds the AUDIT/MANAGE permission that guards changes to the audit
+-- policies and grants it to the ADMIN role, then raises the permission
+-- catalog version so existing tokens pick it up. Skipped on a fresh schema,
+-- where Hibernate has not created the permission tables yet. Every step
+-- checks its own state, so a failed run can be repeated.
+DECLARE
+    object_count  NUMBER;
+
+    PROCEDURE grant_to_admin(name VARCHAR2, resource VARCHAR2, action VARCHAR2, description VARCHAR2) IS
+        permission_count  NUMBER;
+        permission_id     NUMBER;
+    BEGIN
+        EXECUTE IMMEDIATE 'SELECT COUNT(*) FROM permissions WHERE UPPER(resource) = :resource AND UPPER(action) = :action'
+            INTO permission_count USING resource, action;
+        IF permission_count = 0 THEN
+            EXECUTE IMMEDIATE
+                'INSERT INTO permissions (id, name, resource, action, description, bit_index, created_at) ' ||
+                'VALUES (permission_sequence.NEXTVAL, :name, :resource, :action, :description, ' ||
+                'permission_bit_sequence.NEXTVAL, SYSTIMESTAMP)'
+                USING name, resource, action, description;
+        END IF;
+        EXECUTE IMMEDIATE 'SELECT MIN(id) FROM permissions WHERE UPPER(resource) = :resource AND UPPER(action) = :action'
+            INTO permission_id USING resource, action;
+
+        EXECUTE IMMEDIATE
+            'INSERT INTO role_permissions (id, role_id, permission_id, assigned_at) ' ||
+            'SELECT role_permission_sequence.NEXTVAL, r.id, :permission_id, SYSTIMESTAMP FROM roles r ' ||
+            'WHERE r.name = ''ADMIN'' AND NOT EXISTS (' ||
+            '  SELECT 1 FROM role_permissions rp WHERE rp.role_id = r.id AND rp.permission_id = :permission_id)'
+            USING permission_id, permission_id;
+    END;
+BEGIN
+    SELECT COUNT(*) INTO object_count FROM user_tables
+     WHERE table_name IN ('PERMISSIONS', 'ROLES', 'ROLE_PERMISSIONS');
+    IF object_count < 3 THEN
+        RETURN;
+    END IF;
+
+    grant_to_admin('MANAGE_AUDIT', 'AUDIT', 'MANAGE', 'Can change audit policies');
+    EXECUTE IMMEDIATE 'UPDATE permission_catalog_version SET version = version + 1';
+END;
+/
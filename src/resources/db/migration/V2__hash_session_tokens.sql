@@ -0,0 +1,24 @@
+-- Replace the raw bearer token in user_sessions with its SHA-256 hex digest.
+-- Skipped on a fresh schema, where Hibernate creates token_hash directly.
+DECLARE
+    table_count  NUMBER;
+    token_count  NUMBER;
+BEGIN
+    SELECT COUNT(*) INTO table_count FROM user_tables WHERE table_name = 'USER_SESSIONS';
+    IF table_count = 0 THEN
+        RETURN;
+    END IF;
+
+    SELECT COUNT(*) INTO token_count FROM user_tab_columns
+     WHERE table_name = 'USER_SESSIONS' AND column_name = 'TOKEN';
+    IF token_count = 0 THEN
+        RETURN;
+    END IF;
+
+    EXECUTE IMMEDIATE 'ALTER TABLE user_sessions ADD (token_hash VARCHAR2(64 CHAR))';
+    EXECUTE IMMEDIATE 'UPDATE user_sessions SET token_hash = LOWER(RAWTOHEX(STANDARD_HASH(token, ''SHA256'')))';
+    EXECUTE IMMEDIATE 'ALTER TABLE user_sessions MODIFY (token_hash NOT NULL)';
+    EXECUTE IMMEDIATE 'CREATE UNIQUE INDEX idx_user_sessions_token_hash ON user_sessions (token_hash)';
+    EXECUTE IMMEDIATE 'ALTER TABLE user_sessions DROP COLUMN token';
+END;
+/
@@ -0,0 +1,20 @@
+-- Align sequence increments with the entity allocationSize values for pooled-lo ids.
+-- Hibernate rejects a mismatch at startup; fresh schemas get the right increment on creation.
+DECLARE
+    PROCEDURE set_increment(sequence_name VARCHAR2, increment_by NUMBER) IS
+        sequence_count NUMBER;
+    BEGIN
+        SELECT COUNT(*) INTO sequence_count FROM user_sequences WHERE sequence_name = UPPER(set_increment.sequence_name);
+        IF sequence_count > 0 THEN
+            EXECUTE IMMEDIATE 'ALTER SEQUENCE ' || sequence_name || ' INCREMENT BY ' || increment_by;
+        END IF;
+    END;
+BEGIN
+    set_increment('user_sequence', 20);
+    set_increment('role_sequence', 10);
+    set_increment('permission_sequence', 10);
+    set_increment('user_role_sequence', 20);
+    set_increment('role_permission_sequence', 50);
+    set_increment('session_sequence', 50);
+END;
+/
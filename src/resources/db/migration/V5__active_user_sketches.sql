@@ -0,0 +1,23 @@
+-- HyperLogLog sketches of distinct active users. Each instance writes its own
+-- minute rows (no cross-instance write contention); compaction merges them
+-- into hour and day sketches. Replaces the exact per-minute user table.
+CREATE TABLE audit_hll_minute (
+    bucket_start  TIMESTAMP          NOT NULL,
+    node_id       VARCHAR2(64 CHAR)  NOT NULL,
+    registers     BLOB               NOT NULL,
+    CONSTRAINT pk_audit_hll_minute PRIMARY KEY (bucket_start, node_id)
+);
+
+CREATE TABLE audit_hll_hour (
+    bucket_start  TIMESTAMP  NOT NULL,
+    registers     BLOB       NOT NULL,
+    CONSTRAINT pk_audit_hll_hour PRIMARY KEY (bucket_start)
+);
+
+CREATE TABLE audit_hll_day (
+    bucket_start  TIMESTAMP  NOT NULL,
+    registers     BLOB       NOT NULL,
+    CONSTRAINT pk_audit_hll_day PRIMARY KEY (bucket_start)
+);
+
+DROP TABLE audit_rollup_user_minute;
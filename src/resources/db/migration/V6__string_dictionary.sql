@@ -0,0 +1,75 @@
+-- Dictionary for low-cardinality strings (audit actions and resources, user
+-- agents). audit_logs and user_sessions store the integer id instead of the
+-- text. Existing rows are re-encoded here; on a fresh schema Hibernate creates
+-- the id columns directly. Re-encoding a large audit_logs is a one-off full
+-- table update, so run this migration in a maintenance window.
+CREATE TABLE string_dictionary (
+    id     NUMBER(10)          NOT NULL,
+    value  VARCHAR2(500 CHAR)  NOT NULL,
+    CONSTRAINT pk_string_dictionary PRIMARY KEY (id),
+    CONSTRAINT uk_string_dictionary_value UNIQUE (value)
+);
+
+DECLARE
+    next_id  NUMBER;
+
+    FUNCTION has_column(table_name VARCHAR2, column_name VARCHAR2) RETURN BOOLEAN IS
+        column_count NUMBER;
+    BEGIN
+        SELECT COUNT(*) INTO column_count FROM user_tab_columns
+         WHERE table_name = has_column.table_name AND column_name = has_column.column_name;
+        RETURN column_count > 0;
+    END;
+
+    PROCEDURE drop_index(index_name VARCHAR2) IS
+        index_count NUMBER;
+    BEGIN
+        SELECT COUNT(*) INTO index_count FROM user_indexes WHERE index_name = drop_index.index_name;
+        IF index_count > 0 THEN
+            EXECUTE IMMEDIATE 'DROP INDEX ' || index_name;
+        END IF;
+    END;
+BEGIN
+    IF has_column('AUDIT_LOGS', 'ACTION') THEN
+        EXECUTE IMMEDIATE
+            'INSERT INTO string_dictionary (id, value) ' ||
+            'SELECT ROWNUM, value FROM (' ||
+            '  SELECT action AS value FROM audit_logs' ||
+            '  UNION SELECT resource FROM audit_logs' ||
+            '  UNION SELECT SUBSTR(user_agent, 1, 500) FROM audit_logs WHERE user_agent IS NOT NULL)';
+    END IF;
+
+    IF has_column('USER_SESSIONS', 'USER_AGENT') THEN
+        EXECUTE IMMEDIATE
+            'INSERT INTO string_dictionary (id, value) ' ||
+            'SELECT (SELECT NVL(MAX(id), 0) FROM string_dictionary) + ROWNUM, value FROM (' ||
+            '  SELECT DISTINCT SUBSTR(user_agent, 1, 500) AS value FROM user_sessions s' ||
+            '   WHERE user_agent IS NOT NULL' ||
+            '     AND NOT EXISTS (SELECT 1 FROM string_dictionary d WHERE d.value = SUBSTR(s.user_agent, 1, 500)))';
+    END IF;
+
+    SELECT NVL(MAX(id), 0) + 1 INTO next_id FROM string_dictionary;
+    EXECUTE IMMEDIATE 'CREATE SEQUENCE string_dictionary_sequence START WITH ' || next_id || ' INCREMENT BY 1 CACHE 20';
+
+    IF has_column('AUDIT_LOGS', 'ACTION') THEN
+        EXECUTE IMMEDIATE 'ALTER TABLE audit_logs ADD (action_id NUMBER(10), resource_id NUMBER(10), user_agent_id NUMBER(10))';
+        EXECUTE IMMEDIATE
+            'UPDATE audit_logs a SET ' ||
+            '  action_id = (SELECT id FROM string_dictionary d WHERE d.value = a.action),' ||
+            '  resource_id = (SELECT id FROM string_dictionary d WHERE d.value = a.resource),' ||
+            '  user_agent_id = (SELECT id FROM string_dictionary d WHERE d.value = SUBSTR(a.user_agent, 1, 500))';
+        EXECUTE IMMEDIATE 'ALTER TABLE audit_logs MODIFY (action_id NOT NULL, resource_id NOT NULL)';
+        -- Recreated on action_id by Hibernate
+        drop_index('IDX_AUDIT_LOGS_ACTION_TS');
+        EXECUTE IMMEDIATE 'ALTER TABLE audit_logs DROP (action, resource, user_agent)';
+    END IF;
+
+    IF has_column('USER_SESSIONS', 'USER_AGENT') THEN
+        EXECUTE IMMEDIATE 'ALTER TABLE user_sessions ADD (user_agent_id NUMBER(10))';
+        EXECUTE IMMEDIATE
+            'UPDATE user_sessions s SET user_agent_id = ' ||
+            '  (SELECT id FROM string_dictionary d WHERE d.value = SUBSTR(s.user_agent, 1, 500))';
+        EXECUTE IMMEDIATE 'ALTER TABLE user_sessions DROP (user_agent)';
+    END IF;
+END;
+/
@@ -0,0 +1,47 @@
+-- Stable bit positions for permissions in token bitsets, handed out by
+-- permission_bit_sequence and never reused. Existing permissions keep the
+-- position they had in the catalog (ordered by id), so outstanding tokens stay
+-- meaningful. On a fresh schema only the sequence is created and Hibernate
+-- creates bit_index. Every step checks its own state, so a failed run can be
+-- repeated.
+DECLARE
+    table_count   NUMBER;
+    object_count  NUMBER;
+    next_index    NUMBER := 0;
+BEGIN
+    SELECT COUNT(*) INTO table_count FROM user_tables WHERE table_name = 'PERMISSIONS';
+
+    IF table_count > 0 THEN
+        SELECT COUNT(*) INTO object_count FROM user_tab_columns
+         WHERE table_name = 'PERMISSIONS' AND column_name = 'BIT_INDEX';
+        IF object_count = 0 THEN
+            EXECUTE IMMEDIATE 'ALTER TABLE permissions ADD (bit_index NUMBER(10))';
+        END IF;
+
+        EXECUTE IMMEDIATE
+            'MERGE INTO permissions p ' ||
+            'USING (SELECT id, ROW_NUMBER() OVER (ORDER BY id) - 1 AS bit_index FROM permissions) n ' ||
+            'ON (p.id = n.id) ' ||
+            'WHEN MATCHED THEN UPDATE SET p.bit_index = n.bit_index WHERE p.bit_index IS NULL';
+
+        SELECT COUNT(*) INTO object_count FROM user_tab_columns
+         WHERE table_name = 'PERMISSIONS' AND column_name = 'BIT_INDEX' AND nullable = 'Y';
+        IF object_count > 0 THEN
+            EXECUTE IMMEDIATE 'ALTER TABLE permissions MODIFY (bit_index NOT NULL)';
+        END IF;
+
+        SELECT COUNT(*) INTO object_count FROM user_indexes WHERE index_name = 'IDX_PERMISSIONS_BIT_INDEX';
+        IF object_count = 0 THEN
+            EXECUTE IMMEDIATE 'CREATE UNIQUE INDEX idx_permissions_bit_index ON permissions (bit_index)';
+        END IF;
+
+        EXECUTE IMMEDIATE 'SELECT NVL(MAX(bit_index), -1) + 1 FROM permissions' INTO next_index;
+    END IF;
+
+    SELECT COUNT(*) INTO object_count FROM user_sequences WHERE sequence_name = 'PERMISSION_BIT_SEQUENCE';
+    IF object_count = 0 THEN
+        EXECUTE IMMEDIATE 'CREATE SEQUENCE permission_bit_sequence MINVALUE 0 START WITH ' || next_index
+                || ' INCREMENT BY 1 NOCACHE';
+    END IF;
+END;
+/
@@ -0,0 +1,27 @@
+-- The user search index syncs on updated_at alone, so every row needs one:
+-- rows never updated since they were created get their creation time, the
+-- column becomes NOT NULL and is indexed. On a fresh schema Hibernate creates
+-- the column and index. Every step checks its own state, so a failed run can
+-- be repeated.
+DECLARE
+    object_count  NUMBER;
+BEGIN
+    SELECT COUNT(*) INTO object_count FROM user_tab_columns
+     WHERE table_name = 'USERS' AND column_name = 'UPDATED_AT';
+
+    IF object_count > 0 THEN
+        EXECUTE IMMEDIATE 'UPDATE users SET updated_at = created_at WHERE updated_at IS NULL';
+
+        SELECT COUNT(*) INTO object_count FROM user_tab_columns
+         WHERE table_name = 'USERS' AND column_name = 'UPDATED_AT' AND nullable = 'Y';
+        IF object_count > 0 THEN
+            EXECUTE IMMEDIATE 'ALTER TABLE users MODIFY (updated_at NOT NULL)';
+        END IF;
+
+        SELECT COUNT(*) INTO object_count FROM user_indexes WHERE index_name = 'IDX_USERS_UPDATED_AT';
+        IF object_count = 0 THEN
+            EXECUTE IMMEDIATE 'CREATE INDEX idx_users_updated_at ON users (updated_at)';
+        END IF;
+    END IF;
+END;
+/
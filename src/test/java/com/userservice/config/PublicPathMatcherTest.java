@@ -0,0 +1,103 @@
+package com.userservice.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PublicPathMatcherTest {
+
+    private final PublicPathMatcher matcher = new PublicPathMatcher(
+            "/auth/**", "/actuator/health", "/docs/*/index.html", "/users/{id}/avatar");
+
+    @Test
+    void matchesExactPathsOnly() {
+        assertTrue(matcher.matches("/actuator/health"));
+        assertFalse(matcher.matches("/actuator/health/liveness"));
+        assertFalse(matcher.matches("/actuator/healthz"));
+        assertFalse(matcher.matches("/actuator"));
+    }
+
+    @Test
+    void prefixPatternsCoverTheirRootAndSubpaths() {
+        assertTrue(matcher.matches("/auth"));
+        assertTrue(matcher.matches("/auth/"));
+        assertTrue(matcher.matches("/auth/login"));
+        assertTrue(matcher.matches("/auth/password/reset"));
+        assertFalse(matcher.matches("/authorize"));
+        assertFalse(matcher.matches("/api/auth/login"));
+    }
+
+    @Test
+    void otherPatternsAreParsed() {
+        assertTrue(matcher.matches("/docs/v1/index.html"));
+        assertFalse(matcher.matches("/docs/v1/v2/index.html"));
+        assertTrue(matcher.matches("/users/42/avatar"));
+        assertFalse(matcher.matches("/users/42/profile"));
+    }
+
+    @Test
+    void requestPathsAreMatchedWithoutTheContextPath() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setContextPath("/api");
+        assertTrue(matcher.matches(request));
+
+        MockHttpServletRequest outside = new MockHttpServletRequest("GET", "/api/users/42/profile");
+        outside.setContextPath("/api");
+        assertFalse(matcher.matches(outside));
+
+        MockHttpServletRequest noContext = new MockHttpServletRequest("GET", "/actuator/health");
+        assertTrue(matcher.matches(noContext));
+    }
+
+    /**
+     * Per-request cost of the production patterns against the regex matching
+     * shouldNotFilter used to do: the matcher must not allocate, the old code
+     * compiles a regex per pattern. Timings are printed for comparison only.
+     */
+    @Test
+    void matchingCostAgainstPerRequestRegex() {
+        String[] publicUrls = {"/auth/**", "/health/**", "/.well-known/**", "/roles/available",
+                "/actuator/**", "/h2-console/**", "/swagger-ui/**", "/v3/api-docs/**"};
+        PublicPathMatcher compiled = new PublicPathMatcher(publicUrls);
+        Predicate<String> perRequestRegex = path -> Arrays.stream(publicUrls)
+                .anyMatch(pattern -> path.matches(pattern.replace("/**", "/.*")));
+        String[] paths = {"/auth/login", "/users/42", "/v3/api-docs/swagger-config", "/audit/search"};
+
+        int iterations = 200_000;
+        Cost matcherCost = measure(compiled::matches, paths, iterations);
+        Cost regexCost = measure(perRequestRegex, paths, iterations);
+        System.out.printf("public path match: matcher %.1f ns, %.1f B; per-request regex %.1f ns, %.1f B%n",
+                matcherCost.nanosPerCall, matcherCost.bytesPerCall, regexCost.nanosPerCall, regexCost.bytesPerCall);
+
+        assertEquals(0.0, matcherCost.bytesPerCall, 0.1);
+        assertTrue(regexCost.bytesPerCall > 100);
+    }
+
+    private static Cost measure(Predicate<String> matcher, String[] paths, int iterations) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int matched = 0;
+        // Warm up so the timed loop runs compiled code
+        for (int i = 0; i < iterations; i++) {
+            matched += matcher.test(paths[i % paths.length]) ? 1 : 0;
+        }
+        long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            matched += matcher.test(paths[i % paths.length]) ? 1 : 0;
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+        assertEquals(iterations, matched);
+        return new Cost((double) nanos / iterations, (double) bytes / iterations);
+    }
+
+    private record Cost(double nanosPerCall, double bytesPerCall) {
+    }
+}
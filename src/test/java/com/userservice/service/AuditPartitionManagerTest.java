@@ -0,0 +1,62 @@
+package com.userservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AuditPartitionManagerTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private AuditPartitionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:partitions;MODE=Oracle;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS audit_logs");
+        jdbcTemplate.execute("CREATE TABLE audit_logs (id NUMBER(19) PRIMARY KEY, timestamp TIMESTAMP NOT NULL)");
+        jdbcTemplate.update("INSERT INTO audit_logs (id, timestamp) VALUES (1, TIMESTAMP '2020-01-01 00:00:00')");
+
+        manager = new AuditPartitionManager();
+        ReflectionTestUtils.setField(manager, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(manager, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(manager, "enabled", true);
+        manager.init();
+    }
+
+    @Test
+    void fallsBackToAPlainTableWithoutOracle() {
+        manager.detectPartitioning();
+
+        assertFalse(manager.isPartitioned());
+        // Nothing is dropped, so retention leaves every row to the chunked delete
+        assertEquals(0, manager.dropPartitionsBefore(LocalDateTime.now()));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_logs", Integer.class));
+    }
+
+    @Test
+    void staysPlainWhenDisabled() {
+        ReflectionTestUtils.setField(manager, "enabled", false);
+        manager.detectPartitioning();
+
+        assertFalse(manager.isPartitioned());
+    }
+
+    @Test
+    void parsesPartitionUpperBounds() {
+        assertEquals(LocalDateTime.of(2024, 3, 2, 0, 0),
+                AuditPartitionManager.parseHighValue("TIMESTAMP' 2024-03-02 00:00:00'"));
+        assertNull(AuditPartitionManager.parseHighValue("MAXVALUE"));
+        assertNull(AuditPartitionManager.parseHighValue(null));
+    }
+}
@@ -0,0 +1,125 @@
+package com.userservice.service;
+
+import com.userservice.dto.UserRegistrationRequest;
+import com.userservice.dto.UserResponse;
+import com.userservice.entity.Role;
+import com.userservice.util.PasswordUtil;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counts the JDBC statements registration and role assignment prepare, so
+ * losing the pooled-lo id blocks or the batched inserts shows up as a failure.
+ * Runs against H2 in Oracle mode; Flyway is off and Hibernate creates the schema.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statements;MODE=Oracle;DB_CLOSE_DELAY=-1",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.id.optimizer.pooled.preferred=pooled-lo",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.order_updates=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(UserService.class)
+class UserServiceStatementCountTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private AuditService auditService;
+
+    @MockBean
+    private PasswordUtil passwordUtil;
+
+    @MockBean
+    private EffectivePermissionCache effectivePermissionCache;
+
+    @MockBean
+    private UserSearchIndex userSearchIndex;
+
+    @MockBean
+    private PermissionCatalog permissionCatalog;
+
+    @MockBean
+    private StringDictionary stringDictionary;
+
+    private Statistics statistics;
+    private Long adminRoleId;
+
+    @BeforeEach
+    void setUp() {
+        when(passwordUtil.encodePassword(anyString()))
+                .thenReturn("$2a$12$abcdefghijklmnopqrstuvabcdefghijklmnopqrstuvwxyz01234");
+        entityManager.persist(Role.builder().name("USER").description("Default role").build());
+        adminRoleId = entityManager.persist(Role.builder().name("ADMIN").description("Administrators").build()).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // The first registration draws the users and user_roles id blocks
+        register("first");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void registrationTakesIdsFromTheBlockAndBatchesItsInserts() {
+        statistics.clear();
+
+        register("second");
+        entityManager.flush();
+
+        // existsByEmail, existsByUsername, findByName("USER"), then the users and user_roles inserts;
+        // no sequence round trips
+        assertEquals(5, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getEntityInsertCount());
+    }
+
+    @Test
+    void roleAssignmentTakesItsIdFromTheBlock() {
+        UserResponse user = register("assignee");
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        userService.assignRoleToUser(user.getId(), adminRoleId, null, "127.0.0.1");
+        entityManager.flush();
+
+        // User and role by id, the duplicate check, then the user_roles insert
+        assertEquals(4, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityInsertCount());
+    }
+
+    private UserResponse register(String name) {
+        UserRegistrationRequest request = new UserRegistrationRequest();
+        request.setUsername(name);
+        request.setEmail(name + "@example.com");
+        request.setPassword("correct-horse-battery");
+        request.setFirstName("Test");
+        request.setLastName("User");
+        return userService.registerUser(request, "127.0.0.1");
+    }
+}
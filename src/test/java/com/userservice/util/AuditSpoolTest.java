@@ -0,0 +1,154 @@
+package com.userservice.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.userservice.dto.AuditEvent;
+import com.userservice.entity.AuditLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditSpoolTest {
+
+    private static final int MAX_FAILURES = 3;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void databaseOutageKeepsEventsUntilReplaySucceeds() throws Exception {
+        AuditSpool spool = open();
+        spool.append(events(0, 25));
+        spool.append(events(25, 25));
+
+        // The database is down for longer than the quarantine threshold; nothing may be moved aside
+        for (int attempt = 0; attempt < 2 * MAX_FAILURES; attempt++) {
+            assertThrows(AuditSpool.RetryLaterException.class, () -> spool.replay(10, batch -> {
+                throw new AuditSpool.RetryLaterException(new IOException("connection refused"));
+            }));
+        }
+        assertTrue(spool.hasPending());
+        assertEquals(0, spool.getQuarantinedRecords());
+
+        List<String> written = new ArrayList<>();
+        assertEquals(50, spool.replay(10, batch -> batch.forEach(event -> written.add(event.getEventId()))));
+        assertEquals(ids(0, 50), written);
+        assertFalse(spool.hasPending());
+        spool.close();
+    }
+
+    @Test
+    void failedBatchResumesFromTheCheckpointAfterARestart() throws Exception {
+        AuditSpool spool = open();
+        spool.append(events(0, 30));
+
+        // The outage starts after the first batch has been written
+        List<String> written = new ArrayList<>();
+        assertThrows(AuditSpool.RetryLaterException.class, () -> spool.replay(10, batch -> {
+            if (!written.isEmpty()) {
+                throw new AuditSpool.RetryLaterException(new IOException("connection reset"));
+            }
+            batch.forEach(event -> written.add(event.getEventId()));
+        }));
+        spool.close();
+
+        AuditSpool reopened = open();
+        assertEquals(20, reopened.replay(10, batch -> batch.forEach(event -> written.add(event.getEventId()))));
+        assertEquals(ids(0, 30), written);
+        reopened.close();
+    }
+
+    @Test
+    void batchThatKeepsFailingIsQuarantined() throws Exception {
+        AuditSpool spool = open();
+        spool.append(events(0, 30));
+
+        // The second batch holds an event the database always rejects
+        String poison = "event-15";
+        List<String> written = new ArrayList<>();
+        AuditSpool.BatchSink sink = batch -> {
+            if (batch.stream().anyMatch(event -> poison.equals(event.getEventId()))) {
+                throw new IllegalStateException("value too large for column");
+            }
+            batch.forEach(event -> written.add(event.getEventId()));
+        };
+
+        for (int attempt = 1; attempt < MAX_FAILURES; attempt++) {
+            assertThrows(IllegalStateException.class, () -> spool.replay(10, sink));
+        }
+        assertEquals(10, spool.replay(10, sink));
+
+        List<String> expected = new ArrayList<>(ids(0, 10));
+        expected.addAll(ids(20, 10));
+        assertEquals(expected, written);
+        assertFalse(spool.hasPending());
+        assertEquals(10, spool.getQuarantinedRecords());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.filter(path -> path.getFileName().toString().startsWith("quarantine-")).count());
+        }
+        spool.close();
+    }
+
+    @Test
+    void quarantinedFileReplaysOnceRenamedToASegment() throws Exception {
+        AuditSpool spool = open();
+        spool.append(events(0, 5));
+        for (int attempt = 0; attempt < MAX_FAILURES; attempt++) {
+            try {
+                spool.replay(10, batch -> {
+                    throw new IllegalStateException("rejected");
+                });
+            } catch (IllegalStateException expected) {
+                // Retried until it is quarantined
+            }
+        }
+        spool.close();
+
+        Path quarantined;
+        try (Stream<Path> files = Files.list(directory)) {
+            quarantined = files.filter(path -> path.getFileName().toString().startsWith("quarantine-"))
+                    .findFirst().orElseThrow();
+        }
+        Files.move(quarantined, directory.resolve(String.format("segment-%020d.log", 1_000)));
+
+        AuditSpool reopened = open();
+        List<String> written = new ArrayList<>();
+        assertEquals(5, reopened.replay(10, batch -> batch.forEach(event -> written.add(event.getEventId()))));
+        assertEquals(ids(0, 5), written);
+        reopened.close();
+    }
+
+    private AuditSpool open() throws IOException {
+        return new AuditSpool(directory, 1 << 20, false, MAX_FAILURES, objectMapper);
+    }
+
+    private static List<AuditEvent> events(int from, int count) {
+        List<AuditEvent> events = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            events.add(new AuditEvent("event-" + i, 1L, "LOGIN", "AUTH", LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(i),
+                    "127.0.0.1", "test-agent", null, AuditLog.ActionStatus.SUCCESS));
+        }
+        return events;
+    }
+
+    private static List<String> ids(int from, int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            ids.add("event-" + i);
+        }
+        return ids;
+    }
+}
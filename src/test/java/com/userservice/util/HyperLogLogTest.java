@@ -0,0 +1,76 @@
+package com.userservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void smallCountsAreCloseAndIgnoreDuplicates() {
+        HyperLogLog sketch = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        assertTrue(sketch.isEmpty());
+        assertEquals(0, sketch.estimate());
+
+        for (long id = 1; id <= 100; id++) {
+            sketch.add(id);
+        }
+        long estimate = sketch.estimate();
+        assertTrue(Math.abs(estimate - 100) <= 5, "estimate " + estimate);
+
+        for (long id = 1; id <= 100; id++) {
+            sketch.add(id);
+        }
+        assertEquals(estimate, sketch.estimate());
+    }
+
+    @Test
+    void largeCountsStayWithinFourStandardErrors() {
+        HyperLogLog sketch = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        int distinct = 1_000_000;
+        for (long id = 0; id < distinct; id++) {
+            sketch.add(id);
+        }
+        double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+        assertTrue(error < 4 * sketch.relativeStandardError(), "relative error " + error);
+    }
+
+    @Test
+    void mergeEqualsTheUnionOfBothSketches() {
+        HyperLogLog first = new HyperLogLog(10);
+        HyperLogLog second = new HyperLogLog(10);
+        HyperLogLog union = new HyperLogLog(10);
+        for (long id = 0; id < 50_000; id++) {
+            (id % 2 == 0 ? first : second).add(id);
+            union.add(id);
+        }
+        // Overlapping values count once
+        for (long id = 0; id < 10_000; id++) {
+            second.add(id);
+        }
+
+        HyperLogLog merged = first.copy();
+        merged.merge(second);
+        assertEquals(union.estimate(), merged.estimate());
+    }
+
+    @Test
+    void serializedSketchesRoundTrip() {
+        HyperLogLog sketch = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        for (long id = 0; id < 20_000; id += 3) {
+            sketch.add(id);
+        }
+        HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch.getPrecision(), restored.getPrecision());
+        assertEquals(sketch.estimate(), restored.estimate());
+    }
+
+    @Test
+    void rejectsPrecisionOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(17));
+    }
+}
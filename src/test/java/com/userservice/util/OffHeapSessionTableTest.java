@@ -0,0 +1,92 @@
+package com.userservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapSessionTableTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long LATER = NOW + 60_000;
+
+    @Test
+    void findsActiveSessionsAndReportsInactiveOnes() {
+        OffHeapSessionTable table = new OffHeapSessionTable(1024, 4);
+        TokenDigest active = TokenDigest.of("active-token");
+        TokenDigest inactive = TokenDigest.of("inactive-token");
+
+        assertTrue(table.put(active, 1, 10, LATER, true));
+        assertTrue(table.put(inactive, 2, 10, LATER, false));
+
+        assertEquals(1, table.findActiveSessionId(active, NOW));
+        assertEquals(OffHeapSessionTable.NOT_ACTIVE, table.findActiveSessionId(inactive, NOW));
+        assertEquals(OffHeapSessionTable.NOT_FOUND, table.findActiveSessionId(TokenDigest.of("unknown"), NOW));
+        assertEquals(2, table.findSessionId(inactive));
+        assertEquals(1, table.activeCount());
+    }
+
+    @Test
+    void expiredSessionsAreNotActiveAndGetEvicted() {
+        OffHeapSessionTable table = new OffHeapSessionTable(1024, 4);
+        TokenDigest digest = TokenDigest.of("token");
+        table.put(digest, 1, 10, NOW, true);
+
+        assertEquals(OffHeapSessionTable.NOT_ACTIVE, table.findActiveSessionId(digest, NOW));
+        assertEquals(1, table.evictExpired(NOW));
+        assertEquals(OffHeapSessionTable.NOT_FOUND, table.findActiveSessionId(digest, NOW));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void marksSessionsInactiveByTokenAndByUser() {
+        OffHeapSessionTable table = new OffHeapSessionTable(1024, 4);
+        TokenDigest first = TokenDigest.of("first");
+        TokenDigest second = TokenDigest.of("second");
+        TokenDigest other = TokenDigest.of("other-user");
+        table.put(first, 1, 10, LATER, true);
+        table.put(second, 2, 10, LATER, true);
+        table.put(other, 3, 20, LATER, true);
+
+        assertTrue(table.markInactive(first));
+        assertEquals(OffHeapSessionTable.NOT_ACTIVE, table.findActiveSessionId(first, NOW));
+
+        assertEquals(1, table.markUserInactive(10));
+        assertEquals(OffHeapSessionTable.NOT_ACTIVE, table.findActiveSessionId(second, NOW));
+        assertEquals(3, table.findActiveSessionId(other, NOW));
+        assertEquals(1, table.activeCount());
+    }
+
+    @Test
+    void removedSlotsAreReusedAfterRebuild() {
+        // One segment of 16 slots, rebuilt once 12 are used
+        OffHeapSessionTable table = new OffHeapSessionTable(16, 1);
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(table.put(TokenDigest.of(round + "-" + i), i, 1, LATER, true));
+            }
+            for (int i = 0; i < 10; i++) {
+                assertTrue(table.remove(TokenDigest.of(round + "-" + i)));
+            }
+        }
+        assertEquals(0, table.size());
+        assertTrue(table.put(TokenDigest.of("last"), 99, 1, LATER, true));
+        assertEquals(99, table.findActiveSessionId(TokenDigest.of("last"), NOW));
+    }
+
+    @Test
+    void rejectsInsertsWhenSegmentIsFullOfLiveSessions() {
+        OffHeapSessionTable table = new OffHeapSessionTable(16, 1);
+        int stored = 0;
+        for (int i = 0; i < 16; i++) {
+            if (table.put(TokenDigest.of("token-" + i), i, 1, LATER, true)) {
+                stored++;
+            }
+        }
+        assertEquals(12, stored);
+        assertFalse(table.put(TokenDigest.of("one-more"), 100, 1, LATER, true));
+        // Replacing an existing slot still works
+        assertTrue(table.put(TokenDigest.of("token-0"), 0, 1, LATER, false));
+    }
+}
@@ -0,0 +1,80 @@
+package com.userservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingWindowCounterTest {
+
+    @Test
+    void countsEventsWithinTheWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(10_000, 10);
+
+        assertEquals(1, counter.incrementAndGet(0));
+        assertEquals(2, counter.incrementAndGet(500));
+        assertEquals(3, counter.incrementAndGet(9_999));
+        assertEquals(3, counter.count(9_999));
+    }
+
+    @Test
+    void dropsBucketsThatLeaveTheWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(10_000, 10);
+        counter.incrementAndGet(0);
+        counter.incrementAndGet(5_000);
+
+        // The bucket for [0, 1000) leaves the window once 10 seconds have passed
+        assertEquals(1, counter.count(10_000));
+        assertEquals(0, counter.count(15_000));
+        // Reusing a recycled bucket starts it from zero
+        assertEquals(1, counter.incrementAndGet(20_500));
+    }
+
+    @Test
+    void becomesIdleAfterAFullWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(10_000, 10);
+        counter.incrementAndGet(1_000);
+
+        assertFalse(counter.isIdle(10_999));
+        assertTrue(counter.isIdle(11_000));
+    }
+
+    @Test
+    void concurrentIncrementsAtRolloverAreNotLost() throws Exception {
+        int threads = 8;
+        int perThread = 10_000;
+        for (int round = 0; round < 20; round++) {
+            SlidingWindowCounter counter = new SlidingWindowCounter(10_000, 10);
+            // Fill the bucket in an earlier period so every thread races to recycle it
+            counter.incrementAndGet(0);
+            long rollover = 10_000L * (round + 1);
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        counter.incrementAndGet(rollover);
+                    }
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+            assertEquals((long) threads * perThread, counter.count(rollover));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.userservice.util;
+
+import com.userservice.util.TrigramIndex.Hit;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrigramIndexTest {
+
+    @Test
+    void findsCaseInsensitiveSubstringsWithinOneField() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, 100, "alice", "alice@example.com", "Alice", "Smith");
+        index.put(2, 200, "bob", "bob@example.org", "Bob", "Alison");
+        index.put(3, 300, "carol", "carol@example.com", "Carol", "Jones");
+
+        assertEquals(List.of(1L, 2L), ids(index.search("ALI")));
+        assertEquals(List.of(1L, 3L), ids(index.search("example.com")));
+        assertEquals(List.of(), ids(index.search("xyz")));
+        // Trigrams never span fields: "aliceali" is not in any single field
+        assertEquals(List.of(), ids(index.search("aliceali")));
+    }
+
+    @Test
+    void shortQueriesScanAndEmptyQueriesMatchEverything() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, 100, "al", "a@x.io");
+        index.put(2, 200, "bo", "b@x.io");
+
+        assertEquals(List.of(1L), ids(index.search("al")));
+        assertEquals(List.of(1L, 2L), ids(index.search("")));
+        assertEquals(List.of(1L, 2L), ids(index.search(null)));
+    }
+
+    @Test
+    void scoresExactPrefixAndContainsMatches() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, 100, "smith");
+        index.put(2, 200, "smithers");
+        index.put(3, 300, "blacksmith");
+
+        List<Hit> hits = index.search("smith");
+        assertEquals(List.of(3, 2, 1), hits.stream().map(Hit::score).collect(Collectors.toList()));
+    }
+
+    @Test
+    void updatesAndRemovalsReplaceOldPostings() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, 100, "alice", "alice@example.com");
+        index.put(1, 100, "alicia", "alicia@example.com");
+
+        assertEquals(List.of(), ids(index.search("alice")));
+        assertEquals(List.of(1L), ids(index.search("alicia")));
+        assertEquals(1, index.size());
+
+        index.remove(1);
+        assertEquals(List.of(), ids(index.search("alicia")));
+        assertEquals(0, index.size());
+        assertEquals(0, index.trigramCount());
+
+        // The freed ordinal is reused
+        index.put(2, 200, "dave");
+        assertEquals(List.of(2L), ids(index.search("dav")));
+    }
+
+    private static List<Long> ids(List<Hit> hits) {
+        return hits.stream().map(Hit::id).sorted().collect(Collectors.toList());
+    }
+}